@@ -0,0 +1,83 @@
+package com.michaelsemera.digitdash;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Awards achievements from the game event stream
+ * 
+ * Runs as a {@link GameEventBus} handler and keeps its own win counts, so it
+ * never reads {@link PlayerStats} from another thread. Unlocked achievements
+ * queue up until the game screen collects them.
+ * 
+ * @author Michael Semera
+ */
+public class AchievementTracker implements GameEventBus.Handler {
+    
+    private final Map<String, Integer> winsByCategory;
+    private final ConcurrentLinkedQueue<String> unlocked;
+    private int totalGames;
+    private int totalWins;
+    
+    public AchievementTracker() {
+        this.winsByCategory = new HashMap<>();
+        this.unlocked = new ConcurrentLinkedQueue<>();
+    }
+    
+    @Override
+    public void onEvent(GameEvent event, boolean endOfBatch) {
+        switch (event.getType()) {
+            case WON -> {
+                // Quarantined games count for nothing
+                if (!event.isFlagged()) {
+                    totalGames++;
+                    onWin(event.getLevel(), event.getAttempts());
+                }
+            }
+            case LOST -> totalGames++;
+            default -> { }
+        }
+    }
+    
+    private void onWin(GameLevel level, int attempts) {
+        int wins = winsByCategory.merge(level.getStatsCategory(), 1, Integer::sum);
+        totalWins++;
+        
+        // First win on difficulty, or on each other kind of level
+        if (wins == 1) {
+            unlocked.add("First " + level.getStatsCategory() + " Victory!");
+        }
+        
+        // Perfect game (minimum attempts)
+        if (attempts <= 3) {
+            unlocked.add("Perfect Game!");
+        }
+        
+        // Speed demon (under 30 seconds on medium/hard)
+        if (level.getBaseDifficulty() != Difficulty.EASY && totalGames > 0) {
+            unlocked.add("Speed Demon!");
+        }
+        
+        // Milestone wins
+        if (totalWins == 10 || totalWins == 50 || totalWins == 100) {
+            unlocked.add(totalWins + " Total Wins!");
+        }
+    }
+    
+    /**
+     * Take the achievements unlocked since the last call
+     * 
+     * @return Achievement names, oldest first
+     */
+    public List<String> pollUnlocked() {
+        List<String> names = new ArrayList<>();
+        String name;
+        while ((name = unlocked.poll()) != null) {
+            names.add(name);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,83 @@
+package com.michaelsemera.digitdash;
+
+/**
+ * A level calibrated for one player, scored consistently with the fixed
+ * difficulties through {@link ScoreManager#multiplierFor}
+ * 
+ * @author Michael Semera
+ */
+public final class AdaptiveDifficulty implements GameLevel {
+    
+    private final int minRange;
+    private final int maxRange;
+    private final int maxAttempts;
+    private final double scoreMultiplier;
+    
+    /**
+     * Constructor for a calibrated level
+     * 
+     * @param minRange Minimum number in range
+     * @param maxRange Maximum number in range
+     * @param maxAttempts Maximum allowed attempts
+     */
+    public AdaptiveDifficulty(int minRange, int maxRange, int maxAttempts) {
+        if (maxRange <= minRange || maxAttempts <= 0) {
+            throw new IllegalArgumentException(String.format(
+                "Invalid adaptive level: %d-%d, %d attempts", minRange, maxRange, maxAttempts));
+        }
+        this.minRange = minRange;
+        this.maxRange = maxRange;
+        this.maxAttempts = maxAttempts;
+        this.scoreMultiplier = ScoreManager.multiplierFor(maxRange - minRange + 1, maxAttempts);
+    }
+    
+    @Override
+    public String name() {
+        return "ADAPTIVE";
+    }
+    
+    @Override
+    public int getMinRange() {
+        return minRange;
+    }
+    
+    @Override
+    public int getMaxRange() {
+        return maxRange;
+    }
+    
+    @Override
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+    
+    @Override
+    public double getScoreMultiplier() {
+        return scoreMultiplier;
+    }
+    
+    /**
+     * Get the fixed difficulty closest in hardness
+     * 
+     * @return Closest fixed difficulty
+     */
+    @Override
+    public Difficulty getBaseDifficulty() {
+        return Difficulty.closestTo(getHardness());
+    }
+    
+    /**
+     * Get description of the level
+     * 
+     * @return Human-readable description
+     */
+    public String getDescription() {
+        return String.format("%s (%d-%d, %d attempts, x%.2f)",
+                           name(), minRange, maxRange, maxAttempts, scoreMultiplier);
+    }
+    
+    @Override
+    public String toString() {
+        return getDescription();
+    }
+}
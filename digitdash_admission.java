@@ -0,0 +1,331 @@
+package com.michaelsemera.digitdash;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Admission control for guess submission
+ * 
+ * A request must pass a token bucket for its session and one for its
+ * player, fit in the bounded work queue, and arrive while queueing delay is
+ * under the shedding threshold. A request that is only slightly over its
+ * rate gets {@link Verdict#SLOW_DOWN} with a retry delay; one far over it,
+ * or one that finds the queue full, is {@link Verdict#REJECTED}; while the
+ * queue is too slow new work is {@link Verdict#SHED}. A token is only kept
+ * when the request is accepted: one taken from the session bucket is handed
+ * back if the player bucket or the queue turns the request away. The
+ * admission path is lock-free: buckets are single {@link AtomicLong}s
+ * updated by compare-and-set, and bucket lookups are
+ * {@link ConcurrentHashMap} reads. A full bucket carries no state beyond a
+ * fresh one, so player buckets are dropped once they have refilled; at worst
+ * a request racing the drop goes uncharged.
+ * 
+ * @author Michael Semera
+ */
+public class AdmissionController {
+    
+    /**
+     * Outcome of an admission check
+     */
+    public enum Verdict {
+        ACCEPTED,
+        SLOW_DOWN,
+        REJECTED,
+        SHED
+    }
+    
+    /**
+     * Verdict plus how long the client should wait before retrying
+     */
+    public static final class Decision {
+        
+        static final Decision ACCEPT = new Decision(Verdict.ACCEPTED, 0, null);
+        
+        private final Verdict verdict;
+        private final long retryAfterNanos;
+        private final String reason;
+        
+        private Decision(Verdict verdict, long retryAfterNanos, String reason) {
+            this.verdict = verdict;
+            this.retryAfterNanos = retryAfterNanos;
+            this.reason = reason;
+        }
+        
+        public Verdict getVerdict() {
+            return verdict;
+        }
+        
+        public boolean isAccepted() {
+            return verdict == Verdict.ACCEPTED;
+        }
+        
+        public long getRetryAfterNanos() {
+            return retryAfterNanos;
+        }
+        
+        public String getReason() {
+            return reason;
+        }
+        
+        @Override
+        public String toString() {
+            return reason == null ? verdict.name() : verdict.name() + " (" + reason + ")";
+        }
+    }
+    
+    private final LongSupplier nanoClock;
+    private final double sessionRate;
+    private final int sessionBurst;
+    private final double playerRate;
+    private final int playerBurst;
+    private final int queueCapacity;
+    private final long shedLatencyNanos;
+    private final long maxSlowDownNanos;
+    
+    private final ConcurrentHashMap<String, TokenBucket> sessionBuckets;
+    private final ConcurrentHashMap<String, TokenBucket> playerBuckets;
+    private final AtomicInteger queueDepth;
+    private volatile long queueLatencyNanos;
+    
+    /**
+     * Constructor for an admission controller
+     * 
+     * @param sessionRate Sustained guesses per second per session
+     * @param sessionBurst Guesses a session may make back to back
+     * @param playerRate Sustained guesses per second per player, across sessions
+     * @param playerBurst Guesses a player may make back to back
+     * @param queueCapacity Maximum queued guesses
+     * @param shedLatencyNanos Queueing delay above which new work is shed
+     */
+    public AdmissionController(double sessionRate, int sessionBurst, double playerRate, int playerBurst,
+                               int queueCapacity, long shedLatencyNanos) {
+        this(System::nanoTime, sessionRate, sessionBurst, playerRate, playerBurst,
+             queueCapacity, shedLatencyNanos);
+    }
+    
+    /**
+     * Constructor with a custom clock
+     * 
+     * @param nanoClock Monotonic clock in nanoseconds
+     * @param sessionRate Sustained guesses per second per session
+     * @param sessionBurst Guesses a session may make back to back
+     * @param playerRate Sustained guesses per second per player, across sessions
+     * @param playerBurst Guesses a player may make back to back
+     * @param queueCapacity Maximum queued guesses
+     * @param shedLatencyNanos Queueing delay above which new work is shed
+     */
+    public AdmissionController(LongSupplier nanoClock, double sessionRate, int sessionBurst,
+                               double playerRate, int playerBurst, int queueCapacity,
+                               long shedLatencyNanos) {
+        if (sessionRate <= 0 || playerRate <= 0 || sessionBurst <= 0 || playerBurst <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Rates, bursts and queue capacity must be positive");
+        }
+        this.nanoClock = nanoClock;
+        this.sessionRate = sessionRate;
+        this.sessionBurst = sessionBurst;
+        this.playerRate = playerRate;
+        this.playerBurst = playerBurst;
+        this.queueCapacity = queueCapacity;
+        this.shedLatencyNanos = shedLatencyNanos;
+        this.maxSlowDownNanos = (long) (1_000_000_000L / Math.min(sessionRate, playerRate));
+        this.sessionBuckets = new ConcurrentHashMap<>();
+        this.playerBuckets = new ConcurrentHashMap<>();
+        this.queueDepth = new AtomicInteger();
+    }
+    
+    /**
+     * Decide whether to admit a guess and, if so, reserve a queue slot.
+     * An accepted caller must call {@link #onDequeued} when the work leaves
+     * the queue.
+     * 
+     * @param sessionId Session submitting the guess
+     * @param playerId Player owning the session
+     * @return Admission decision
+     */
+    public Decision admit(String sessionId, String playerId) {
+        // Shed while queued work is waiting too long; an empty queue always admits
+        long latency = queueLatencyNanos;
+        if (latency > shedLatencyNanos && queueDepth.get() > 0) {
+            return new Decision(Verdict.SHED, latency, "queue latency over threshold");
+        }
+        
+        long now = nanoClock.getAsLong();
+        TokenBucket session = bucket(sessionBuckets, sessionId, sessionRate, sessionBurst);
+        long wait = session.tryAcquire(now);
+        if (wait == 0) {
+            TokenBucket player = bucket(playerBuckets, playerId, playerRate, playerBurst);
+            wait = player.tryAcquire(now);
+            if (wait > 0) {
+                session.refund();
+            } else if (!reserveQueueSlot()) {
+                session.refund();
+                player.refund();
+                return new Decision(Verdict.REJECTED, 0, "queue full");
+            }
+        }
+        if (wait > 0) {
+            return wait <= maxSlowDownNanos
+                ? new Decision(Verdict.SLOW_DOWN, wait, "rate limited")
+                : new Decision(Verdict.REJECTED, wait, "rate limited");
+        }
+        return Decision.ACCEPT;
+    }
+    
+    /**
+     * Reserve a queue slot without locking
+     * 
+     * @return false if the queue is full
+     */
+    private boolean reserveQueueSlot() {
+        int depth;
+        do {
+            depth = queueDepth.get();
+            if (depth >= queueCapacity) {
+                return false;
+            }
+        } while (!queueDepth.compareAndSet(depth, depth + 1));
+        return true;
+    }
+    
+    /**
+     * Release a queue slot and record how long the work waited, which
+     * drives the shedding decision
+     * 
+     * @param enqueuedAt Clock reading when the work was admitted
+     */
+    public void onDequeued(long enqueuedAt) {
+        queueLatencyNanos = nanoClock.getAsLong() - enqueuedAt;
+        queueDepth.decrementAndGet();
+    }
+    
+    /**
+     * Forget the bucket of a finished session, and its player's bucket if
+     * that has refilled
+     * 
+     * @param sessionId Session id
+     * @param playerId Player owning the session
+     */
+    public void closeSession(String sessionId, String playerId) {
+        sessionBuckets.remove(sessionId);
+        long now = nanoClock.getAsLong();
+        playerBuckets.computeIfPresent(playerId, (id, bucket) -> bucket.isFull(now) ? null : bucket);
+    }
+    
+    /**
+     * Drop every bucket that has refilled, for players whose sessions are
+     * never closed
+     * 
+     * @return Number of buckets dropped
+     */
+    public int evictIdleBuckets() {
+        long now = nanoClock.getAsLong();
+        int before = sessionBuckets.size() + playerBuckets.size();
+        sessionBuckets.values().removeIf(bucket -> bucket.isFull(now));
+        playerBuckets.values().removeIf(bucket -> bucket.isFull(now));
+        return before - sessionBuckets.size() - playerBuckets.size();
+    }
+    
+    /**
+     * Get the number of rate limit buckets held
+     * 
+     * @return Session plus player buckets
+     */
+    public int getBucketCount() {
+        return sessionBuckets.size() + playerBuckets.size();
+    }
+    
+    private static TokenBucket bucket(ConcurrentHashMap<String, TokenBucket> buckets, String key,
+                                      double rate, int burst) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(rate, burst));
+        }
+        return bucket;
+    }
+    
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+    
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+    
+    /**
+     * Get how long the most recently dequeued work waited
+     * 
+     * @return Queue latency in nanoseconds
+     */
+    public long getQueueLatencyNanos() {
+        return queueLatencyNanos;
+    }
+    
+    public long getClockNanos() {
+        return nanoClock.getAsLong();
+    }
+    
+    /**
+     * Token bucket in generic cell rate form: the only state is the
+     * theoretical arrival time of the next token, held in one AtomicLong.
+     * Denied requests are charged too, so a client that honours the retry
+     * delay is only slowed down while one that keeps hammering pushes its
+     * wait out until it is rejected outright.
+     */
+    static final class TokenBucket {
+        
+        private static final long MAX_PENALTY_NANOS = 10_000_000_000L;
+        
+        private final long interval;
+        private final long tolerance;
+        private final AtomicLong theoreticalArrival;
+        
+        TokenBucket(double ratePerSecond, int burst) {
+            this.interval = (long) (1_000_000_000L / ratePerSecond);
+            this.tolerance = interval * (burst - 1);
+            this.theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+        }
+        
+        /**
+         * Take one token
+         * 
+         * @param now Current clock reading in nanoseconds
+         * @return 0 if a token was taken, otherwise nanoseconds until one is available
+         */
+        long tryAcquire(long now) {
+            while (true) {
+                long tat = theoreticalArrival.get();
+                long start = tat == Long.MIN_VALUE ? now : Math.max(tat, now);
+                long wait = start - tolerance - now;
+                if (wait > 0) {
+                    long penalised = Math.min(start + interval, now + tolerance + MAX_PENALTY_NANOS);
+                    theoreticalArrival.compareAndSet(tat, penalised);
+                    return wait;
+                }
+                if (theoreticalArrival.compareAndSet(tat, start + interval)) {
+                    return 0;
+                }
+            }
+        }
+        
+        /**
+         * Hand back a token taken by {@link #tryAcquire} for a request that
+         * was turned away further on
+         */
+        void refund() {
+            theoreticalArrival.addAndGet(-interval);
+        }
+        
+        /**
+         * Check whether the bucket has refilled, i.e. behaves as a new one
+         * 
+         * @param now Current clock reading in nanoseconds
+         * @return true if every token is available
+         */
+        boolean isFull(long now) {
+            long tat = theoreticalArrival.get();
+            return tat == Long.MIN_VALUE || tat <= now;
+        }
+    }
+}
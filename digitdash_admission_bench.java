@@ -0,0 +1,285 @@
+package com.michaelsemera.digitdash;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control benchmark
+ * 
+ * Legitimate players play bisection games through a {@link GuessGateway}
+ * at human pace while abusive clients flood their sessions from busy
+ * threads. Three scenarios run in turn: legitimate players alone, players
+ * plus abusers behind admission control, and players plus abusers with
+ * control effectively disabled. For each, the report gives the legitimate
+ * players' guess latency percentiles and what happened to the abusers'
+ * submissions; the legitimate p99 should be the same in the first two.
+ * 
+ * Usage: java -cp bin com.michaelsemera.digitdash.AdmissionBenchmark
+ *        [--players N] [--abusers N] [--workers N] [--seconds N] [--think-ms N]
+ * 
+ * @author Michael Semera
+ */
+public class AdmissionBenchmark {
+    
+    private static final int LATENCY_BUCKETS = 1_000_001; // 1 µs each, last one is overflow
+    
+    private final int players;
+    private final int abusers;
+    private final int workers;
+    private final long durationNanos;
+    private final long thinkNanos;
+    
+    private AdmissionBenchmark(int players, int abusers, int workers, int seconds, long thinkMillis) {
+        this.players = players;
+        this.abusers = abusers;
+        this.workers = workers;
+        this.durationNanos = TimeUnit.SECONDS.toNanos(seconds);
+        this.thinkNanos = TimeUnit.MILLISECONDS.toNanos(thinkMillis);
+    }
+    
+    /**
+     * Results of one scenario
+     */
+    private static final class Result {
+        
+        final AtomicLongArray latencyMicros = new AtomicLongArray(LATENCY_BUCKETS);
+        final LongAdder legitGuesses = new LongAdder();
+        final LongAdder legitDelayed = new LongAdder();
+        final LongAdder abuserAccepted = new LongAdder();
+        final LongAdder abuserSlowedDown = new LongAdder();
+        final LongAdder abuserRejected = new LongAdder();
+        final LongAdder abuserShed = new LongAdder();
+        
+        void recordLatency(long nanos) {
+            int micros = (int) Math.min(LATENCY_BUCKETS - 1, nanos / 1_000);
+            latencyMicros.incrementAndGet(micros);
+            legitGuesses.increment();
+        }
+        
+        long percentileMicros(double percentile) {
+            long total = legitGuesses.sum();
+            long rank = (long) Math.ceil(total * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < LATENCY_BUCKETS; i++) {
+                seen += latencyMicros.get(i);
+                if (seen >= rank && seen > 0) return i;
+            }
+            return LATENCY_BUCKETS - 1;
+        }
+        
+        void recordAbuser(AdmissionController.Verdict verdict) {
+            switch (verdict) {
+                case ACCEPTED -> abuserAccepted.increment();
+                case SLOW_DOWN -> abuserSlowedDown.increment();
+                case REJECTED -> abuserRejected.increment();
+                case SHED -> abuserShed.increment();
+            }
+        }
+    }
+    
+    /**
+     * A legitimate player: bisects one game after another, thinking
+     * between guesses and honouring slow-down responses
+     */
+    private final class Player {
+        
+        private final GuessGateway gateway;
+        private final ScheduledExecutorService scheduler;
+        private final Result result;
+        private final String playerId;
+        private final long deadline;
+        private int game;
+        private String sessionId;
+        private int low;
+        private int high;
+        
+        Player(GuessGateway gateway, ScheduledExecutorService scheduler, Result result, int index, long deadline) {
+            this.gateway = gateway;
+            this.scheduler = scheduler;
+            this.result = result;
+            this.playerId = "player-" + index;
+            this.deadline = deadline;
+        }
+        
+        void newGame() {
+            if (sessionId != null) {
+                gateway.closeSession(sessionId);
+            }
+            sessionId = playerId + "-game-" + game++;
+            gateway.openSession(sessionId, playerId, Difficulty.HARD, null);
+            low = Difficulty.HARD.getMinRange();
+            high = Difficulty.HARD.getMaxRange();
+        }
+        
+        void guess() {
+            if (System.nanoTime() >= deadline) return;
+            
+            long submittedAt = System.nanoTime();
+            GuessGateway.Submission submission = gateway.submit(sessionId, (low + high) >>> 1);
+            CompletableFuture<GuessResult> pending = submission.getResult();
+            if (pending == null) {
+                result.legitDelayed.increment();
+                long retryAfter = Math.max(submission.getDecision().getRetryAfterNanos(), 1_000_000L);
+                scheduler.schedule(this::guess, retryAfter, TimeUnit.NANOSECONDS);
+                return;
+            }
+            
+            pending.whenComplete((outcome, error) -> {
+                result.recordLatency(System.nanoTime() - submittedAt);
+                int guess = (low + high) >>> 1;
+                if (error != null || outcome == GuessResult.CORRECT || low >= high) {
+                    newGame();
+                } else if (outcome == GuessResult.TOO_LOW) {
+                    low = guess + 1;
+                } else {
+                    high = guess - 1;
+                }
+                long think = thinkNanos / 2 + ThreadLocalRandom.current().nextLong(thinkNanos + 1);
+                scheduler.schedule(this::guess, think, TimeUnit.NANOSECONDS);
+            });
+        }
+    }
+    
+    /**
+     * Run one scenario
+     * 
+     * @param controller Admission policy
+     * @param abuserCount Number of flooding threads
+     * @return Measurements
+     */
+    private Result run(AdmissionController controller, int abuserCount) throws InterruptedException {
+        Result result = new Result();
+        long deadline = System.nanoTime() + durationNanos;
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+        
+        try (GameEventBus eventBus = new GameEventBus();
+             GuessGateway gateway = new GuessGateway(controller, workers, new BotDetector(), eventBus)) {
+            SplittableRandom random = new SplittableRandom(7);
+            for (int i = 0; i < players; i++) {
+                Player player = new Player(gateway, scheduler, result, i, deadline);
+                player.newGame();
+                scheduler.schedule(player::guess, random.nextLong(thinkNanos + 1), TimeUnit.NANOSECONDS);
+            }
+            
+            Thread[] flooders = new Thread[abuserCount];
+            for (int i = 0; i < abuserCount; i++) {
+                String abuserId = "abuser-" + i;
+                flooders[i] = new Thread(() -> flood(gateway, result, abuserId, deadline), abuserId);
+                flooders[i].start();
+            }
+            
+            long remaining = deadline - System.nanoTime();
+            TimeUnit.NANOSECONDS.sleep(Math.max(0, remaining));
+            for (Thread flooder : flooders) {
+                flooder.join();
+            }
+        } finally {
+            scheduler.shutdownNow();
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        return result;
+    }
+    
+    /**
+     * Submit guesses as fast as possible, ignoring every response, and
+     * start a fresh game whenever the current one is over
+     */
+    private static void flood(GuessGateway gateway, Result result, String abuserId, long deadline) {
+        int game = 0;
+        String sessionId = abuserId + "-game-" + game;
+        gateway.openSession(sessionId, abuserId, Difficulty.HARD, null);
+        CompletableFuture<GuessResult> last = null;
+        int guess = Difficulty.HARD.getMinRange();
+        
+        while (System.nanoTime() < deadline) {
+            if (last != null && last.isDone()
+                    && (last.isCompletedExceptionally() || last.join() == GuessResult.CORRECT)) {
+                gateway.closeSession(sessionId);
+                sessionId = abuserId + "-game-" + ++game;
+                gateway.openSession(sessionId, abuserId, Difficulty.HARD, null);
+                last = null;
+                guess = Difficulty.HARD.getMinRange();
+            }
+            
+            GuessGateway.Submission submission = gateway.submit(sessionId, guess++);
+            result.recordAbuser(submission.getDecision().getVerdict());
+            if (submission.getResult() != null) {
+                last = submission.getResult();
+            }
+        }
+    }
+    
+    private void report(String scenario, Result result) {
+        double seconds = durationNanos / 1e9;
+        System.out.printf("%n%s%n", scenario);
+        System.out.println("─────────────────────────────────────────────────────────────");
+        System.out.printf("  Legit guesses: %,d (%,.0f/s), delayed by admission: %,d%n",
+                          result.legitGuesses.sum(), result.legitGuesses.sum() / seconds,
+                          result.legitDelayed.sum());
+        System.out.printf("  Legit latency: p50 %,d µs | p99 %,d µs | p99.9 %,d µs%n",
+                          result.percentileMicros(50), result.percentileMicros(99),
+                          result.percentileMicros(99.9));
+        
+        long abuserTotal = result.abuserAccepted.sum() + result.abuserSlowedDown.sum()
+            + result.abuserRejected.sum() + result.abuserShed.sum();
+        if (abuserTotal > 0) {
+            System.out.printf("  Abuser submissions: %,d | accepted %,d | slowed %,d | rejected %,d | shed %,d%n",
+                              abuserTotal, result.abuserAccepted.sum(), result.abuserSlowedDown.sum(),
+                              result.abuserRejected.sum(), result.abuserShed.sum());
+        }
+    }
+    
+    /**
+     * Admission policy used for the controlled scenarios: room for a
+     * human's bursts, well below what a script can do
+     */
+    private static AdmissionController controlled() {
+        return new AdmissionController(20, 5, 40, 10, 10_000, TimeUnit.MILLISECONDS.toNanos(50));
+    }
+    
+    /**
+     * Admission policy that lets everything through up to a large queue bound
+     */
+    private static AdmissionController uncontrolled() {
+        return new AdmissionController(1e9, Integer.MAX_VALUE / 2, 1e9, Integer.MAX_VALUE / 2,
+                                       1_000_000, Long.MAX_VALUE);
+    }
+    
+    /**
+     * Main entry point
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int players = 500;
+        // Flooders spin without pause; leave the gateway its cores, or the
+        // benchmark measures CPU starvation rather than admission control
+        int abusers = Math.max(1, Runtime.getRuntime().availableProcessors() - 2);
+        int workers = 1;
+        int seconds = 5;
+        long thinkMillis = 100;
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--players" -> players = Integer.parseInt(args[++i]);
+                case "--abusers" -> abusers = Integer.parseInt(args[++i]);
+                case "--workers" -> workers = Integer.parseInt(args[++i]);
+                case "--seconds" -> seconds = Integer.parseInt(args[++i]);
+                case "--think-ms" -> thinkMillis = Long.parseLong(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        
+        AdmissionBenchmark benchmark = new AdmissionBenchmark(players, abusers, workers, seconds, thinkMillis);
+        System.out.printf("%d players (think time ~%d ms), %d abusers, %d workers, %d s per scenario%n",
+                          players, thinkMillis, abusers, workers, seconds);
+        
+        benchmark.report("Legitimate players only", benchmark.run(controlled(), 0));
+        benchmark.report("With abusers, admission control on", benchmark.run(controlled(), abusers));
+        benchmark.report("With abusers, admission control off", benchmark.run(uncontrolled(), abusers));
+    }
+}
@@ -0,0 +1,252 @@
+package com.michaelsemera.digitdash;
+
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+/**
+ * Allocation-budget regression harness
+ * 
+ * Plays scripted games on every difficulty through {@link GameEngine},
+ * {@link ScoreManager} and {@link PlayerStats}, measuring the bytes the
+ * current thread allocates around each public call with
+ * {@code ThreadMXBean.getCurrentThreadAllocatedBytes()}. Warm-up games run
+ * first so class loading and JIT compilation are not charged to the
+ * operations. Prints a report per operation and difficulty, and exits with
+ * status 1 when the average bytes per guess or per game exceed the budget.
+ * 
+ * Usage: java -cp bin com.michaelsemera.digitdash.AllocationBudget
+ *        [--games N] [--warmup N] [--budget-per-guess BYTES] [--budget-per-game BYTES]
+ * 
+ * @author Michael Semera
+ */
+public class AllocationBudget {
+    
+    /**
+     * Public operations measured by the harness
+     */
+    enum Operation {
+        START_GAME("GameEngine.startNewGame"),
+        HAS_BEEN_GUESSED("GameEngine.hasBeenGuessed"),
+        MAKE_GUESS("GameEngine.makeGuess"),
+        REMAINING_RANGE("GameEngine.getRemainingRange"),
+        GUESS_HISTORY("GameEngine.getGuessHistory"),
+        CALCULATE_SCORE("ScoreManager.calculateScore"),
+        RECORD_WIN("PlayerStats.recordWin"),
+        RECORD_LOSS("PlayerStats.recordLoss");
+        
+        private final String label;
+        
+        Operation(String label) {
+            this.label = label;
+        }
+        
+        public String getLabel() {
+            return label;
+        }
+    }
+    
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final Difficulty[] DIFFICULTIES = Difficulty.values();
+    
+    private final com.sun.management.ThreadMXBean threads;
+    private final long overhead;
+    
+    private final GameEngine engine;
+    private final ScoreManager scoreManager;
+    private final PlayerStats playerStats;
+    private final SplittableRandom random;
+    
+    private final long[][] bytes;
+    private final long[][] calls;
+    private final long[] guesses;
+    private final long[] games;
+    
+    public AllocationBudget() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean threadBean)
+                || !threadBean.isThreadAllocatedMemorySupported()) {
+            throw new IllegalStateException("This JVM cannot measure per-thread allocation");
+        }
+        this.threads = threadBean;
+        threads.setThreadAllocatedMemoryEnabled(true);
+        
+        this.engine = new GameEngine(new BotDetector());
+        this.scoreManager = new ScoreManager();
+        this.playerStats = new PlayerStats();
+        this.random = new SplittableRandom(42);
+        
+        this.bytes = new long[DIFFICULTIES.length][OPERATIONS.length];
+        this.calls = new long[DIFFICULTIES.length][OPERATIONS.length];
+        this.guesses = new long[DIFFICULTIES.length];
+        this.games = new long[DIFFICULTIES.length];
+        this.overhead = measureOverhead();
+    }
+    
+    /**
+     * Bytes reported for an empty measurement, subtracted from every sample
+     */
+    private long measureOverhead() {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            long after = threads.getCurrentThreadAllocatedBytes();
+            min = Math.min(min, after - before);
+        }
+        return min;
+    }
+    
+    /**
+     * Play one scripted game: a slightly noisy bisection that sometimes
+     * runs out of attempts, so both outcomes are exercised
+     * 
+     * @param difficulty Difficulty level
+     * @param measure Whether to record the allocations
+     */
+    void playGame(Difficulty difficulty, boolean measure) {
+        int d = difficulty.ordinal();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        engine.startNewGame(difficulty);
+        charge(measure, d, Operation.START_GAME, before);
+        
+        int low = difficulty.getMinRange();
+        int high = difficulty.getMaxRange();
+        GuessResult result = null;
+        int attempts = 0;
+        
+        while (attempts < difficulty.getMaxAttempts() && result != GuessResult.CORRECT) {
+            int guess = (low + high) >>> 1;
+            if (random.nextInt(4) == 0) {
+                guess = low + random.nextInt(high - low + 1);
+            }
+            
+            before = threads.getCurrentThreadAllocatedBytes();
+            boolean repeated = engine.hasBeenGuessed(guess);
+            charge(measure, d, Operation.HAS_BEEN_GUESSED, before);
+            if (repeated) {
+                guess = low;
+            }
+            
+            before = threads.getCurrentThreadAllocatedBytes();
+            result = engine.makeGuess(guess);
+            charge(measure, d, Operation.MAKE_GUESS, before);
+            attempts++;
+            
+            before = threads.getCurrentThreadAllocatedBytes();
+            int[] range = engine.getRemainingRange();
+            charge(measure, d, Operation.REMAINING_RANGE, before);
+            low = range[0];
+            high = range[1];
+        }
+        
+        before = threads.getCurrentThreadAllocatedBytes();
+        engine.getGuessHistory();
+        charge(measure, d, Operation.GUESS_HISTORY, before);
+        
+        if (result == GuessResult.CORRECT) {
+            long timeTaken = 5 + random.nextInt(120);
+            
+            before = threads.getCurrentThreadAllocatedBytes();
+            int score = scoreManager.calculateScore(difficulty, attempts, timeTaken);
+            charge(measure, d, Operation.CALCULATE_SCORE, before);
+            
+            before = threads.getCurrentThreadAllocatedBytes();
+            playerStats.recordWin(difficulty, attempts, timeTaken, score);
+            charge(measure, d, Operation.RECORD_WIN, before);
+        } else {
+            before = threads.getCurrentThreadAllocatedBytes();
+            playerStats.recordLoss(difficulty);
+            charge(measure, d, Operation.RECORD_LOSS, before);
+        }
+        
+        if (measure) {
+            guesses[d] += attempts;
+            games[d]++;
+        }
+    }
+    
+    private void charge(boolean measure, int d, Operation operation, long before) {
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before - overhead;
+        if (measure) {
+            bytes[d][operation.ordinal()] += Math.max(0, allocated);
+            calls[d][operation.ordinal()]++;
+        }
+    }
+    
+    /**
+     * Print the report and check the budgets
+     * 
+     * @param budgetPerGuess Maximum average bytes per makeGuess call
+     * @param budgetPerGame Maximum average bytes per game, all operations
+     * @return true if every difficulty is within budget
+     */
+    boolean report(double budgetPerGuess, double budgetPerGame) {
+        boolean withinBudget = true;
+        
+        for (Difficulty difficulty : DIFFICULTIES) {
+            int d = difficulty.ordinal();
+            if (games[d] == 0) continue;
+            
+            System.out.printf("%n%s (%d games, %d guesses)%n", difficulty.name(), games[d], guesses[d]);
+            System.out.println("─────────────────────────────────────────────────────────────");
+            System.out.printf("  %-30s %10s %14s %10s%n", "Operation", "Calls", "Bytes", "B/call");
+            
+            long gameBytes = 0;
+            for (Operation operation : OPERATIONS) {
+                int o = operation.ordinal();
+                gameBytes += bytes[d][o];
+                double perCall = calls[d][o] == 0 ? 0.0 : (double) bytes[d][o] / calls[d][o];
+                System.out.printf("  %-30s %10d %14d %10.1f%n",
+                                  operation.getLabel(), calls[d][o], bytes[d][o], perCall);
+            }
+            
+            double perGuess = (double) bytes[d][Operation.MAKE_GUESS.ordinal()] / guesses[d];
+            double perGame = (double) gameBytes / games[d];
+            boolean guessOk = perGuess <= budgetPerGuess;
+            boolean gameOk = perGame <= budgetPerGame;
+            withinBudget &= guessOk && gameOk;
+            
+            System.out.printf("  Per guess: %.1f B (budget %.0f) %s%n",
+                              perGuess, budgetPerGuess, guessOk ? "OK" : "OVER BUDGET");
+            System.out.printf("  Per game:  %.1f B (budget %.0f) %s%n",
+                              perGame, budgetPerGame, gameOk ? "OK" : "OVER BUDGET");
+        }
+        return withinBudget;
+    }
+    
+    /**
+     * Main entry point
+     */
+    public static void main(String[] args) {
+        int gamesPerDifficulty = 10_000;
+        int warmup = 20_000;
+        double budgetPerGuess = 8;
+        double budgetPerGame = 1024;
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games" -> gamesPerDifficulty = Integer.parseInt(args[++i]);
+                case "--warmup" -> warmup = Integer.parseInt(args[++i]);
+                case "--budget-per-guess" -> budgetPerGuess = Double.parseDouble(args[++i]);
+                case "--budget-per-game" -> budgetPerGame = Double.parseDouble(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        
+        AllocationBudget harness = new AllocationBudget();
+        for (int i = 0; i < warmup; i++) {
+            harness.playGame(DIFFICULTIES[i % DIFFICULTIES.length], false);
+        }
+        for (Difficulty difficulty : DIFFICULTIES) {
+            for (int i = 0; i < gamesPerDifficulty; i++) {
+                harness.playGame(difficulty, true);
+            }
+        }
+        
+        System.out.println("Allocation per operation (measurement overhead " + harness.overhead + " B)");
+        if (!harness.report(budgetPerGuess, budgetPerGame)) {
+            System.out.println("\nAllocation budget exceeded");
+            System.exit(1);
+        }
+        System.out.println("\nAll allocation budgets met");
+    }
+}
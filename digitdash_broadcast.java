@@ -0,0 +1,671 @@
+package com.michaelsemera.digitdash;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Live game broadcast to spectators
+ * 
+ * Subscribed to a {@link GameEventBus}, it turns each game's events into a
+ * stream of state frames: the guess, its result, attempts left and the range
+ * still possible. Each state change is encoded once into a fixed-size frame,
+ * a read-only slice of a shared direct buffer, and that same frame is handed
+ * to every spectator of the game; a sender can write it to a socket as is.
+ * The buffers are slabs of frames that go back to a small pool once none of
+ * their frames is the latest state of a game or waiting in a mailbox, so a
+ * spectator must not keep a frame past its callback.
+ * 
+ * Every spectator has a one-frame mailbox drained on a delivery pool. A new
+ * frame replaces one the spectator has not received yet, so a slow spectator
+ * skips straight to the latest state instead of building a queue and never
+ * holds up the game. Callbacks should not block, as a blocked callback ties
+ * up a delivery thread. A spectator who joins mid-game is sent the current
+ * frame at once. A game with no events for the idle timeout, such as one
+ * abandoned by a closed session, is dropped and its spectators cancelled.
+ * 
+ * @author Michael Semera
+ */
+public final class SpectatorBroadcast implements GameEventBus.Handler, AutoCloseable {
+    
+    public static final int FRAME_SIZE = 40;
+    public static final byte FRAME_VERSION = 1;
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 10 * 60_000L;
+    
+    // Frame layout, big-endian
+    private static final int VERSION = 0;
+    private static final int TYPE = 1;
+    private static final int RESULT = 2;
+    private static final int FLAGS = 3;
+    private static final int GAME_ID = 4;
+    private static final int SEQUENCE = 12;
+    private static final int GUESS = 16;
+    private static final int ATTEMPTS = 20;
+    private static final int REMAINING = 22;
+    private static final int LOW = 24;
+    private static final int HIGH = 28;
+    private static final int EXACT = 32;
+    private static final int MISPLACED = 33;
+    private static final int TIME_TAKEN = 36;
+    
+    private static final int FLAG_CODE_GAME = 1;
+    private static final int FLAG_SCRIPTED = 2;
+    static final int SLAB_FRAMES = 1024;
+    private static final int MAX_FREE_SLABS = 16;
+    
+    private static final GameEvent.Type[] TYPES = GameEvent.Type.values();
+    private static final GuessResult[] RESULTS = GuessResult.values();
+    
+    /**
+     * Receives a game's frames
+     */
+    @FunctionalInterface
+    public interface Spectator {
+        
+        /**
+         * Receive the latest frame. Called on a delivery thread, never
+         * concurrently for one spectator; frames that arrived while the
+         * previous call was running are skipped apart from the newest.
+         * The frame's memory is reused after the call returns, so copy out
+         * anything that has to outlive it.
+         * 
+         * @param frame The frame, shared with every other spectator
+         */
+        void onFrame(Frame frame);
+    }
+    
+    private final Map<Long, Channel> channels;
+    private final Executor delivery;
+    private final ExecutorService ownedDelivery;
+    private final AtomicLong framesEncoded;
+    private final BlockingQueue<Slab> freeSlabs;
+    private final AtomicLong slabsAllocated;
+    private final long idleTimeoutNanos;
+    private final long sweepIntervalNanos;
+    private long gamesExpired;
+    
+    // Only touched on the bus handler thread
+    private Slab slab;
+    private long lastSweep;
+    
+    /**
+     * Constructor with a delivery pool of one thread per processor
+     */
+    public SpectatorBroadcast() {
+        this(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), deliveryThreads()), true,
+             DEFAULT_IDLE_TIMEOUT_MILLIS);
+    }
+    
+    /**
+     * Constructor delivering frames on a caller-supplied executor
+     * 
+     * @param delivery Executor to run spectator callbacks on
+     */
+    public SpectatorBroadcast(Executor delivery) {
+        this(delivery, false, DEFAULT_IDLE_TIMEOUT_MILLIS);
+    }
+    
+    /**
+     * Constructor delivering frames on a caller-supplied executor and
+     * dropping games idle for longer than a timeout
+     * 
+     * @param delivery Executor to run spectator callbacks on
+     * @param idleTimeoutMillis Time without events after which a game is dropped
+     */
+    public SpectatorBroadcast(Executor delivery, long idleTimeoutMillis) {
+        this(delivery, false, idleTimeoutMillis);
+    }
+    
+    private SpectatorBroadcast(Executor delivery, boolean owned, long idleTimeoutMillis) {
+        if (idleTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("Idle timeout must be positive: " + idleTimeoutMillis);
+        }
+        this.channels = new ConcurrentHashMap<>();
+        this.delivery = delivery;
+        this.ownedDelivery = owned ? (ExecutorService) delivery : null;
+        this.framesEncoded = new AtomicLong();
+        this.freeSlabs = new ArrayBlockingQueue<>(MAX_FREE_SLABS);
+        this.slabsAllocated = new AtomicLong();
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.sweepIntervalNanos = Math.max(1, idleTimeoutNanos / 4);
+        this.lastSweep = System.nanoTime();
+    }
+    
+    private static ThreadFactory deliveryThreads() {
+        AtomicInteger count = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, "spectator-delivery-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+    
+    /**
+     * Encode a game event and fan it out to the game's spectators
+     */
+    @Override
+    public void onEvent(GameEvent event, boolean endOfBatch) {
+        long now = System.nanoTime();
+        if (now - lastSweep >= sweepIntervalNanos) {
+            lastSweep = now;
+            expireIdleGames(now);
+        }
+        
+        Channel channel = event.getType() == GameEvent.Type.GAME_STARTED
+            ? null
+            : channels.get(event.getGameId());
+        if (channel == null) {
+            // Games already running when the broadcast started join here
+            channel = new Channel(event.getGameId(), event.getLevel());
+            Channel replaced = channels.put(channel.gameId, channel);
+            if (replaced != null) {
+                end(replaced, true);
+            }
+        }
+        channel.lastEventAt = now;
+        
+        channel.apply(event);
+        Frame frame = encode(channel, event);
+        Frame previous;
+        synchronized (channel) {
+            previous = channel.latest;
+            channel.latest = frame;
+        }
+        if (previous != null) {
+            previous.release();
+        }
+        for (Subscription subscription : channel.subscriptions) {
+            subscription.offer(frame);
+        }
+        
+        if (frame.isFinal()) {
+            // Subscriptions end themselves once they receive the final frame
+            end(channel, false);
+        }
+    }
+    
+    /**
+     * Drop games that have had no events for the idle timeout. Their
+     * channels would otherwise stay, with a frame each, for as long as the
+     * broadcast runs.
+     */
+    private void expireIdleGames(long now) {
+        for (Channel channel : channels.values()) {
+            if (now - channel.lastEventAt >= idleTimeoutNanos) {
+                end(channel, true);
+                gamesExpired++;
+            }
+        }
+    }
+    
+    /**
+     * Stop broadcasting a game and give up its latest frame
+     */
+    private void end(Channel channel, boolean cancelSpectators) {
+        channels.remove(channel.gameId, channel);
+        Frame latest;
+        synchronized (channel) {
+            channel.ended = true;
+            latest = channel.latest;
+            channel.latest = null;
+        }
+        if (latest != null) {
+            latest.release();
+        }
+        if (cancelSpectators) {
+            for (Subscription subscription : channel.subscriptions) {
+                subscription.cancel();
+            }
+        }
+    }
+    
+    /**
+     * Encode a frame into the current slab, moving to a recycled or new
+     * slab when it is full
+     * 
+     * @return The frame, holding one reference to its slab for the caller
+     */
+    private Frame encode(Channel channel, GameEvent event) {
+        if (slab == null || slab.buffer.remaining() < FRAME_SIZE) {
+            if (slab != null) {
+                slab.release();
+            }
+            slab = freeSlabs.poll();
+            if (slab == null) {
+                slab = new Slab();
+            }
+        }
+        ByteBuffer buffer = slab.buffer;
+        int at = buffer.position();
+        CodeFeedback feedback = event.getFeedback();
+        GuessResult result = event.getResult();
+        int flags = (event.getLevel() instanceof CodeBreakerLevel ? FLAG_CODE_GAME : 0)
+            | (event.isFlagged() ? FLAG_SCRIPTED : 0);
+        
+        buffer.put(at + VERSION, FRAME_VERSION)
+            .put(at + TYPE, (byte) event.getType().ordinal())
+            .put(at + RESULT, (byte) (result == null ? -1 : result.ordinal()))
+            .put(at + FLAGS, (byte) flags)
+            .putLong(at + GAME_ID, channel.gameId)
+            .putInt(at + SEQUENCE, channel.sequence)
+            .putInt(at + GUESS, event.getGuess())
+            .putShort(at + ATTEMPTS, (short) event.getAttempts())
+            .putShort(at + REMAINING, (short) (event.getLevel().getMaxAttempts() - event.getAttempts()))
+            .putInt(at + LOW, channel.low)
+            .putInt(at + HIGH, channel.high)
+            .put(at + EXACT, (byte) (feedback == null ? 0 : feedback.getExact()))
+            .put(at + MISPLACED, (byte) (feedback == null ? 0 : feedback.getMisplaced()))
+            .putInt(at + TIME_TAKEN, (int) Math.min(Integer.MAX_VALUE, event.getTimeTaken()));
+        buffer.position(at + FRAME_SIZE);
+        
+        framesEncoded.incrementAndGet();
+        slab.retain();
+        return new Frame(slab, buffer.slice(at, FRAME_SIZE).asReadOnlyBuffer(), channel.sequence++);
+    }
+    
+    /**
+     * Start watching a live game
+     * 
+     * @param gameId Game to watch
+     * @param spectator Receiver of the game's frames
+     * @return Subscription, which ends by itself after the final frame
+     */
+    public Subscription watch(long gameId, Spectator spectator) {
+        Channel channel = channels.get(gameId);
+        if (channel == null) {
+            throw new IllegalArgumentException("No live game with id " + gameId);
+        }
+        Subscription subscription = new Subscription(channel, spectator);
+        synchronized (channel) {
+            if (channel.ended) {
+                throw new IllegalArgumentException("No live game with id " + gameId);
+            }
+            channel.subscriptions.add(subscription);
+            
+            // Catch up with the current state; older frames are dropped on
+            // offer. The lock keeps the frame from being released meanwhile.
+            Frame latest = channel.latest;
+            if (latest != null) {
+                subscription.offer(latest);
+            }
+        }
+        return subscription;
+    }
+    
+    /**
+     * Get the games that can be watched
+     * 
+     * @return Ids of games in progress
+     */
+    public long[] getLiveGames() {
+        return channels.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+    
+    /**
+     * Get how many frames have been encoded; each is encoded once however
+     * many spectators receive it
+     * 
+     * @return Frames encoded
+     */
+    public long getFramesEncoded() {
+        return framesEncoded.get();
+    }
+    
+    /**
+     * Get how many slabs have been allocated; the rest of the frames were
+     * encoded into recycled ones
+     * 
+     * @return Slabs allocated
+     */
+    public long getSlabsAllocated() {
+        return slabsAllocated.get();
+    }
+    
+    /**
+     * Get how many games were dropped after the idle timeout without
+     * reaching a final frame. Read on the bus handler thread, or after the
+     * bus has stopped.
+     * 
+     * @return Games expired
+     */
+    public long getGamesExpired() {
+        return gamesExpired;
+    }
+    
+    /**
+     * Stop the delivery pool if this broadcast created it
+     */
+    @Override
+    public void close() {
+        if (ownedDelivery != null) {
+            ownedDelivery.shutdown();
+        }
+    }
+    
+    /**
+     * Direct buffer that frames are encoded into. It counts one reference
+     * while it is being filled and one for each place a frame of it is
+     * held, and goes back to the pool when the count drops to zero.
+     */
+    private final class Slab {
+        
+        private final ByteBuffer buffer;
+        private final AtomicInteger references;
+        
+        Slab() {
+            this.buffer = ByteBuffer.allocateDirect(SLAB_FRAMES * FRAME_SIZE);
+            this.references = new AtomicInteger(1);
+            slabsAllocated.incrementAndGet();
+        }
+        
+        void retain() {
+            references.incrementAndGet();
+        }
+        
+        void release() {
+            if (references.decrementAndGet() == 0) {
+                buffer.clear();
+                references.set(1);
+                // Dropped for the collector if the pool is full
+                freeSlabs.offer(this);
+            }
+        }
+    }
+    
+    /**
+     * State of one game being broadcast. Mutable fields are only written on
+     * the bus handler thread; latest and ended are also read by watch under
+     * the channel's lock.
+     */
+    private static final class Channel {
+        
+        private final long gameId;
+        private final List<Subscription> subscriptions;
+        private Frame latest;
+        private boolean ended;
+        private long lastEventAt;
+        private int sequence;
+        private int low;
+        private int high;
+        
+        Channel(long gameId, GameLevel level) {
+            this.gameId = gameId;
+            this.subscriptions = new CopyOnWriteArrayList<>();
+            this.low = level.getMinRange();
+            this.high = level.getMaxRange();
+        }
+        
+        /**
+         * Narrow the range still possible, as {@link GameEngine#getRemainingRange} does
+         */
+        void apply(GameEvent event) {
+            GuessResult result = event.getResult();
+            int guess = event.getGuess();
+            if (result == GuessResult.TOO_LOW && guess >= low) {
+                low = guess + 1;
+            } else if (result == GuessResult.TOO_HIGH && guess <= high) {
+                high = guess - 1;
+            } else if (result == GuessResult.CORRECT
+                       || (event.getFeedback() != null && event.getFeedback().isCorrect())) {
+                low = guess;
+                high = guess;
+            }
+        }
+    }
+    
+    /**
+     * One spectator's link to a game
+     */
+    public final class Subscription {
+        
+        private final Channel channel;
+        private final Spectator spectator;
+        private final AtomicReference<Frame> pending;
+        private final AtomicBoolean scheduled;
+        private final AtomicLong skipped;
+        private volatile int lastSequence;
+        private volatile long delivered;
+        private volatile boolean active;
+        
+        private Subscription(Channel channel, Spectator spectator) {
+            this.channel = channel;
+            this.spectator = spectator;
+            this.pending = new AtomicReference<>();
+            this.scheduled = new AtomicBoolean();
+            this.skipped = new AtomicLong();
+            this.lastSequence = -1;
+            this.active = true;
+        }
+        
+        /**
+         * Put a frame in the mailbox, replacing an older undelivered one,
+         * and schedule delivery if none is scheduled
+         */
+        void offer(Frame frame) {
+            frame.retain();
+            Frame current;
+            do {
+                current = pending.get();
+                if (current != null && current.sequence >= frame.sequence) {
+                    frame.release();
+                    return;
+                }
+            } while (!pending.compareAndSet(current, frame));
+            
+            if (current != null) {
+                skipped.incrementAndGet();
+                current.release();
+            }
+            if (!active) {
+                // Cancelled while the frame was being offered
+                clearPending();
+                return;
+            }
+            if (scheduled.compareAndSet(false, true)) {
+                delivery.execute(this::drain);
+            }
+        }
+        
+        private void drain() {
+            Frame frame;
+            while (active && (frame = pending.getAndSet(null)) != null) {
+                boolean last = frame.isFinal();
+                try {
+                    if (frame.sequence <= lastSequence) continue;
+                    lastSequence = frame.sequence;
+                    spectator.onFrame(frame);
+                    delivered++;
+                } catch (RuntimeException e) {
+                    System.err.println("Spectator of game " + channel.gameId + " failed: " + e);
+                    cancel();
+                    return;
+                } finally {
+                    frame.release();
+                }
+                if (last) {
+                    cancel();
+                }
+            }
+            scheduled.set(false);
+            
+            // A frame may have arrived after the mailbox was found empty
+            if (active && pending.get() != null && scheduled.compareAndSet(false, true)) {
+                delivery.execute(this::drain);
+            }
+        }
+        
+        /**
+         * Stop receiving frames
+         */
+        public void cancel() {
+            active = false;
+            channel.subscriptions.remove(this);
+            clearPending();
+        }
+        
+        private void clearPending() {
+            Frame stale = pending.getAndSet(null);
+            if (stale != null) {
+                stale.release();
+            }
+        }
+        
+        /**
+         * Check whether frames are still being delivered
+         * 
+         * @return false once cancelled or after the game's final frame
+         */
+        public boolean isActive() {
+            return active;
+        }
+        
+        public long getDelivered() {
+            return delivered;
+        }
+        
+        /**
+         * Get how many frames were replaced before this spectator received them
+         * 
+         * @return Frames skipped
+         */
+        public long getSkipped() {
+            return skipped.get();
+        }
+    }
+    
+    /**
+     * One encoded game state, shared by every spectator of the game
+     */
+    public static final class Frame {
+        
+        private final Slab slab;
+        private final ByteBuffer bytes;
+        private final int sequence;
+        
+        private Frame(Slab slab, ByteBuffer bytes, int sequence) {
+            this.slab = slab;
+            this.bytes = bytes;
+            this.sequence = sequence;
+        }
+        
+        private void retain() {
+            slab.retain();
+        }
+        
+        private void release() {
+            slab.release();
+        }
+        
+        /**
+         * Get the encoded frame for sending. Each call returns a new
+         * read-only view of the same memory, with its own position.
+         * 
+         * @return Read-only view of the frame's bytes
+         */
+        public ByteBuffer getBytes() {
+            return bytes.duplicate();
+        }
+        
+        public int getSequence() {
+            return sequence;
+        }
+        
+        public GameEvent.Type getType() {
+            return TYPES[bytes.get(TYPE)];
+        }
+        
+        public long getGameId() {
+            return bytes.getLong(GAME_ID);
+        }
+        
+        public int getGuess() {
+            return bytes.getInt(GUESS);
+        }
+        
+        /**
+         * Get the result of a number game guess
+         * 
+         * @return Guess result, or null for a game start or code guess
+         */
+        public GuessResult getResult() {
+            byte result = bytes.get(RESULT);
+            return result < 0 ? null : RESULTS[result];
+        }
+        
+        public int getAttempts() {
+            return bytes.getShort(ATTEMPTS);
+        }
+        
+        public int getRemainingAttempts() {
+            return bytes.getShort(REMAINING);
+        }
+        
+        /**
+         * Get the smallest number still possible
+         * 
+         * @return Lower bound of the remaining range
+         */
+        public int getLow() {
+            return bytes.getInt(LOW);
+        }
+        
+        /**
+         * Get the largest number still possible
+         * 
+         * @return Upper bound of the remaining range
+         */
+        public int getHigh() {
+            return bytes.getInt(HIGH);
+        }
+        
+        public int getExact() {
+            return bytes.get(EXACT);
+        }
+        
+        public int getMisplaced() {
+            return bytes.get(MISPLACED);
+        }
+        
+        public long getTimeTaken() {
+            return bytes.getInt(TIME_TAKEN);
+        }
+        
+        public boolean isCodeGame() {
+            return (bytes.get(FLAGS) & FLAG_CODE_GAME) != 0;
+        }
+        
+        public boolean isFlagged() {
+            return (bytes.get(FLAGS) & FLAG_SCRIPTED) != 0;
+        }
+        
+        /**
+         * Check whether this is the game's last frame
+         * 
+         * @return true if the game was won or lost
+         */
+        public boolean isFinal() {
+            GameEvent.Type type = getType();
+            return type == GameEvent.Type.WON || type == GameEvent.Type.LOST;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("Frame[game=%d, seq=%d, type=%s, guess=%d, result=%s, remaining=%d, range=%d-%d]",
+                                 getGameId(), sequence, getType(), getGuess(), getResult(),
+                                 getRemainingAttempts(), getLow(), getHigh());
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.michaelsemera.digitdash;
+
+/**
+ * Per-player skill estimate that picks the next adaptive level
+ * 
+ * Difficulty is steered by a weighted staircase on hardness (bits the
+ * player must extract per attempt): each win raises it by
+ * {@code step * (1 - target)} and each loss lowers it by
+ * {@code step * target}, which settles where the player wins at the target
+ * rate. Recent attempts are smoothed into an exponentially weighted average
+ * that sets the attempt budget. Solve pace (seconds per attempt in a win) is
+ * smoothed the same way and scales the win step: a player who wins quickly
+ * climbs up to half again as fast, one who wins slowly up to half as fast.
+ * Every update is O(1) and the state is a few doubles, so no game history
+ * is kept.
+ * 
+ * @author Michael Semera
+ */
+public class DifficultyCalibrator {
+    
+    public static final double DEFAULT_TARGET_WIN_RATE = 0.7;
+    
+    private static final double STEP = 0.08;
+    private static final double SMOOTHING = 0.2;
+    private static final double MIN_HARDNESS = 0.3;
+    private static final double MAX_HARDNESS = 1.25;
+    private static final double REFERENCE_PACE = 8.0; // Seconds per attempt of an unhurried player
+    private static final double MIN_PACE_FACTOR = 0.5;
+    private static final double MAX_PACE_FACTOR = 1.5;
+    private static final int MIN_ATTEMPTS = 5;
+    private static final int MAX_ATTEMPTS = 15;
+    private static final int MIN_RANGE_SIZE = 10;
+    private static final int MAX_RANGE_SIZE = 1_000_000;
+    
+    private final double targetWinRate;
+    
+    private double hardness;
+    private double winRate;
+    private double attemptsUsed;
+    private double pace;
+    private int games;
+    
+    public DifficultyCalibrator() {
+        this(DEFAULT_TARGET_WIN_RATE);
+    }
+    
+    /**
+     * Constructor with a custom target
+     * 
+     * @param targetWinRate Desired win rate (0-1, exclusive)
+     */
+    public DifficultyCalibrator(double targetWinRate) {
+        if (targetWinRate <= 0 || targetWinRate >= 1) {
+            throw new IllegalArgumentException("Target win rate must be between 0 and 1: " + targetWinRate);
+        }
+        this.targetWinRate = targetWinRate;
+        
+        // Start everyone at MEDIUM
+        this.hardness = Difficulty.MEDIUM.getHardness();
+        this.winRate = targetWinRate;
+        this.attemptsUsed = Difficulty.MEDIUM.getMaxAttempts() * 0.6;
+        this.pace = REFERENCE_PACE;
+        this.games = 0;
+    }
+    
+    /**
+     * Record a win
+     * 
+     * @param level Level that was played
+     * @param attempts Attempts taken
+     * @param timeTaken Time taken in seconds
+     */
+    public void recordWin(GameLevel level, int attempts, long timeTaken) {
+        games++;
+        winRate += SMOOTHING * (1 - winRate);
+        attemptsUsed += SMOOTHING * (attempts - attemptsUsed);
+        pace += SMOOTHING * ((double) timeTaken / Math.max(1, attempts) - pace);
+        
+        // A win at a harder level than estimated proves at least that much
+        // skill, and a quick one is stronger evidence than a laboured one
+        adjust(Math.max(hardness, level.getHardness()), STEP * (1 - targetWinRate) * paceFactor());
+    }
+    
+    /**
+     * Record a loss
+     * 
+     * @param level Level that was played
+     */
+    public void recordLoss(GameLevel level) {
+        games++;
+        winRate -= SMOOTHING * winRate;
+        attemptsUsed += SMOOTHING * (level.getMaxAttempts() - attemptsUsed);
+        
+        // A loss at an easier level than estimated caps the skill there
+        adjust(Math.min(hardness, level.getHardness()), -STEP * targetWinRate);
+    }
+    
+    /**
+     * Scale for the win step from the smoothed solve pace
+     */
+    private double paceFactor() {
+        if (pace <= REFERENCE_PACE / MAX_PACE_FACTOR) {
+            return MAX_PACE_FACTOR;
+        }
+        return Math.max(MIN_PACE_FACTOR, REFERENCE_PACE / pace);
+    }
+    
+    private void adjust(double base, double delta) {
+        hardness = Math.max(MIN_HARDNESS, Math.min(MAX_HARDNESS, base + delta));
+    }
+    
+    /**
+     * Pick the level for the player's next game
+     * 
+     * @return Calibrated level
+     */
+    public AdaptiveDifficulty nextDifficulty() {
+        int attempts = (int) Math.round(attemptsUsed) + 2;
+        attempts = Math.max(MIN_ATTEMPTS, Math.min(MAX_ATTEMPTS, attempts));
+        
+        long rangeSize = Math.round(Math.pow(2, hardness * attempts));
+        rangeSize = Math.max(MIN_RANGE_SIZE, Math.min(MAX_RANGE_SIZE, rangeSize));
+        
+        return new AdaptiveDifficulty(1, (int) rangeSize, attempts);
+    }
+    
+    /**
+     * Get the current skill estimate
+     * 
+     * @return Hardness the player is expected to beat at the target win rate
+     */
+    public double getSkill() {
+        return hardness;
+    }
+    
+    /**
+     * Get recent win rate
+     * 
+     * @return Smoothed win rate (0-100)
+     */
+    public double getRecentWinRate() {
+        return winRate * 100;
+    }
+    
+    /**
+     * Get recent attempts per game
+     * 
+     * @return Smoothed attempts
+     */
+    public double getRecentAttempts() {
+        return attemptsUsed;
+    }
+    
+    /**
+     * Get recent solve pace
+     * 
+     * @return Smoothed seconds per attempt in won games
+     */
+    public double getRecentPace() {
+        return pace;
+    }
+    
+    public int getGames() {
+        return games;
+    }
+    
+    public double getTargetWinRate() {
+        return targetWinRate;
+    }
+}
@@ -0,0 +1,170 @@
+package com.michaelsemera.digitdash;
+
+/**
+ * Feedback arithmetic for code-breaker games
+ * 
+ * Codes are compared without strings or digit loops. Every code is padded
+ * to eight digits and described by two precomputed words looked up per half:
+ * its digits as packed nibbles, and its digit counts as ten 5-bit lanes.
+ * Exact matches are the zero nibbles of the XOR of two nibble words. Matches
+ * regardless of position are the sum over digits of the smaller count, taken
+ * for all ten lanes at once with a guard-bit subtraction and summed with one
+ * multiply. Padding zeros match in both codes and are subtracted out.
+ * 
+ * @author Michael Semera
+ */
+public final class CodeBreaker {
+    
+    private static final int HALF = 10_000;
+    private static final int PADDED_DIGITS = 8;
+    private static final int NIBBLE_LOW_BITS = 0x11111111;
+    
+    // Per 4-digit half: digits as nibbles, and digit counts in 5-bit lanes
+    private static final int[] NIBBLES = new int[HALF];
+    private static final long[] COUNTS = new long[HALF];
+    
+    private static final long LANE_ONES = lanes(1L);
+    private static final long LANE_GUARDS = lanes(0x10L);
+    private static final int[] CODE_COUNTS = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000,
+                                              10_000_000, 100_000_000};
+    
+    static {
+        for (int value = 0; value < HALF; value++) {
+            int nibbles = 0;
+            long counts = 0;
+            int rest = value;
+            for (int position = 0; position < 4; position++) {
+                int digit = rest % 10;
+                rest /= 10;
+                nibbles |= digit << (4 * position);
+                counts += 1L << (5 * digit);
+            }
+            NIBBLES[value] = nibbles;
+            COUNTS[value] = counts;
+        }
+    }
+    
+    private CodeBreaker() {
+    }
+    
+    private static long lanes(long value) {
+        long result = 0;
+        for (int digit = 0; digit < 10; digit++) {
+            result |= value << (5 * digit);
+        }
+        return result;
+    }
+    
+    /**
+     * Get the number of codes of a given length
+     * 
+     * @param digits Code length
+     * @return 10^digits
+     */
+    public static int codeCount(int digits) {
+        return CODE_COUNTS[digits];
+    }
+    
+    static int nibbles(int code) {
+        return NIBBLES[code / HALF] << 16 | NIBBLES[code % HALF];
+    }
+    
+    static long counts(int code) {
+        return COUNTS[code / HALF] + COUNTS[code % HALF];
+    }
+    
+    static int nibblesOfHalves(int high, int low) {
+        return NIBBLES[high] << 16 | NIBBLES[low];
+    }
+    
+    static long countsOfHalves(int high, int low) {
+        return COUNTS[high] + COUNTS[low];
+    }
+    
+    /**
+     * Compare two padded codes
+     * 
+     * @return Matches regardless of position in the high bits, exact
+     *         matches in the low four bits, both counting padding
+     */
+    static int compare(int nibblesA, long countsA, int nibblesB, long countsB) {
+        int x = nibblesA ^ nibblesB;
+        int differing = (x | x >>> 1 | x >>> 2 | x >>> 3) & NIBBLE_LOW_BITS;
+        int exact = PADDED_DIGITS - Integer.bitCount(differing);
+        
+        // Per lane: guard bit survives the subtraction where a >= b
+        long aAtLeastB = (((countsA | LANE_GUARDS) - countsB) & LANE_GUARDS) >>> 4;
+        long takeB = aAtLeastB * 0xF;
+        long min = (countsB & takeB) | (countsA & ~takeB);
+        int common = (int) ((min * LANE_ONES) >>> 45) & 0x1F;
+        
+        return common << 4 | exact;
+    }
+    
+    /**
+     * Raw comparison value that {@link #compare} produces for a feedback
+     * 
+     * @param feedback The feedback
+     * @return Raw comparison value
+     */
+    static int raw(CodeFeedback feedback) {
+        int padding = PADDED_DIGITS - feedback.getDigits();
+        int exact = feedback.getExact() + padding;
+        return (exact + feedback.getMisplaced()) << 4 | exact;
+    }
+    
+    /**
+     * Convert a raw comparison value to feedback
+     * 
+     * @param digits Code length
+     * @param raw Raw comparison value
+     * @return The feedback
+     */
+    static CodeFeedback feedback(int digits, int raw) {
+        int exact = raw & 0xF;
+        int common = raw >>> 4;
+        return CodeFeedback.of(digits, exact - (PADDED_DIGITS - digits), common - exact);
+    }
+    
+    /**
+     * Score a guess against the code
+     * 
+     * @param digits Code length
+     * @param code The code
+     * @param guess The guess
+     * @return Exact and misplaced digit counts
+     */
+    public static CodeFeedback feedback(int digits, int code, int guess) {
+        return feedback(digits, compare(nibbles(code), counts(code), nibbles(guess), counts(guess)));
+    }
+    
+    /**
+     * Format a code with its leading zeros
+     * 
+     * @param digits Code length
+     * @param code The code
+     * @return Code as shown to the player
+     */
+    public static String format(int digits, int code) {
+        String text = Integer.toString(code);
+        return "0".repeat(digits - text.length()) + text;
+    }
+    
+    /**
+     * Parse a code typed by the player
+     * 
+     * @param digits Code length
+     * @param text Player input
+     * @return The code, or -1 if the input is not exactly that many digits
+     */
+    public static int parse(int digits, String text) {
+        if (text.length() != digits) return -1;
+        int code = 0;
+        for (int i = 0; i < digits; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            code = code * 10 + (c - '0');
+        }
+        return code;
+    }
+}
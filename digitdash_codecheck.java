@@ -0,0 +1,152 @@
+package com.michaelsemera.digitdash;
+
+import java.util.SplittableRandom;
+
+/**
+ * Correctness check for code-breaker feedback
+ * 
+ * Compares {@link CodeBreaker#feedback(int, int, int)}, which works on
+ * packed nibbles and digit counts, with a plain reference that formats both
+ * codes as strings and counts digits one by one. Every pair is checked for
+ * codes of up to three digits; longer codes are checked on random pairs,
+ * with the guess sometimes derived from the code so that high exact counts
+ * are covered too. Exits with status 1 on any mismatch.
+ * 
+ * Usage: java -cp bin com.michaelsemera.digitdash.CodeFeedbackCheck
+ *        [--pairs N] [--seed N]
+ * 
+ * @author Michael Semera
+ */
+public class CodeFeedbackCheck {
+    
+    private static final int EXHAUSTIVE_DIGITS = 3;
+    private static final int MAX_REPORTED = 10;
+    
+    private long checked;
+    private long mismatches;
+    
+    /**
+     * Compare one pair against the reference
+     * 
+     * @param digits Code length
+     * @param code The code
+     * @param guess The guess
+     */
+    void check(int digits, int code, int guess) {
+        CodeFeedback actual = CodeBreaker.feedback(digits, code, guess);
+        String a = CodeBreaker.format(digits, code);
+        String b = CodeBreaker.format(digits, guess);
+        
+        int exact = 0;
+        int[] countsA = new int[10];
+        int[] countsB = new int[10];
+        for (int i = 0; i < digits; i++) {
+            if (a.charAt(i) == b.charAt(i)) {
+                exact++;
+            }
+            countsA[a.charAt(i) - '0']++;
+            countsB[b.charAt(i) - '0']++;
+        }
+        int common = 0;
+        for (int d = 0; d < 10; d++) {
+            common += Math.min(countsA[d], countsB[d]);
+        }
+        
+        checked++;
+        if (actual.getExact() != exact || actual.getMisplaced() != common - exact) {
+            if (mismatches++ < MAX_REPORTED) {
+                System.out.printf("  MISMATCH %s vs %s: got %s, expected %d exact, %d misplaced%n",
+                                  a, b, actual, exact, common - exact);
+            }
+        }
+    }
+    
+    /**
+     * Check every pair of codes of a length
+     * 
+     * @param digits Code length
+     */
+    void checkAll(int digits) {
+        int count = CodeBreaker.codeCount(digits);
+        for (int code = 0; code < count; code++) {
+            for (int guess = 0; guess < count; guess++) {
+                check(digits, code, guess);
+            }
+        }
+    }
+    
+    /**
+     * Check random pairs of codes of a length
+     * 
+     * @param digits Code length
+     * @param pairs Pairs to check
+     * @param random Random source
+     */
+    void checkRandom(int digits, long pairs, SplittableRandom random) {
+        int count = CodeBreaker.codeCount(digits);
+        for (long i = 0; i < pairs; i++) {
+            int code = random.nextInt(count);
+            int guess = random.nextBoolean() ? random.nextInt(count) : mutate(digits, code, random);
+            check(digits, code, guess);
+        }
+    }
+    
+    /**
+     * Change a few digits of a code, or swap two of them
+     */
+    private static int mutate(int digits, int code, SplittableRandom random) {
+        char[] text = CodeBreaker.format(digits, code).toCharArray();
+        int changes = random.nextInt(digits + 1);
+        for (int i = 0; i < changes; i++) {
+            if (random.nextBoolean()) {
+                text[random.nextInt(digits)] = (char) ('0' + random.nextInt(10));
+            } else {
+                int x = random.nextInt(digits);
+                int y = random.nextInt(digits);
+                char c = text[x];
+                text[x] = text[y];
+                text[y] = c;
+            }
+        }
+        return CodeBreaker.parse(digits, new String(text));
+    }
+    
+    /**
+     * Main entry point
+     */
+    public static void main(String[] args) {
+        long pairs = 1_600_000;
+        long seed = 42;
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--pairs" -> pairs = Long.parseLong(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        
+        CodeFeedbackCheck harness = new CodeFeedbackCheck();
+        SplittableRandom random = new SplittableRandom(seed);
+        int randomLengths = CodeBreakerLevel.MAX_DIGITS - EXHAUSTIVE_DIGITS;
+        
+        System.out.printf("Code-breaker feedback against string reference (seed %d)%n", seed);
+        System.out.println("─────────────────────────────────────────────────────────────");
+        for (int digits = CodeBreakerLevel.MIN_DIGITS; digits <= CodeBreakerLevel.MAX_DIGITS; digits++) {
+            long before = harness.checked;
+            boolean exhaustive = digits <= EXHAUSTIVE_DIGITS;
+            if (exhaustive) {
+                harness.checkAll(digits);
+            } else {
+                harness.checkRandom(digits, pairs / randomLengths, random);
+            }
+            System.out.printf("  %d digits: %,13d pairs (%s)%n",
+                              digits, harness.checked - before, exhaustive ? "all" : "random");
+        }
+        
+        System.out.printf("%nChecked %,d pairs, %,d mismatches%n", harness.checked, harness.mismatches);
+        if (harness.mismatches > 0) {
+            System.exit(1);
+        }
+    }
+}
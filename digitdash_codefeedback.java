@@ -0,0 +1,94 @@
+package com.michaelsemera.digitdash;
+
+/**
+ * Feedback for a code-breaker guess: how many digits are in the right
+ * place and how many more are in the code but misplaced
+ * 
+ * Instances are interned, so feedback can be compared with == like a
+ * {@link GuessResult}.
+ * 
+ * @author Michael Semera
+ */
+public final class CodeFeedback {
+    
+    private static final CodeFeedback[][][] CACHE = buildCache();
+    
+    private final int digits;
+    private final int exact;
+    private final int misplaced;
+    
+    private CodeFeedback(int digits, int exact, int misplaced) {
+        this.digits = digits;
+        this.exact = exact;
+        this.misplaced = misplaced;
+    }
+    
+    private static CodeFeedback[][][] buildCache() {
+        int maxDigits = CodeBreakerLevel.MAX_DIGITS;
+        CodeFeedback[][][] cache = new CodeFeedback[maxDigits + 1][][];
+        for (int d = 1; d <= maxDigits; d++) {
+            cache[d] = new CodeFeedback[d + 1][];
+            for (int e = 0; e <= d; e++) {
+                cache[d][e] = new CodeFeedback[d - e + 1];
+                for (int m = 0; e + m <= d; m++) {
+                    cache[d][e][m] = new CodeFeedback(d, e, m);
+                }
+            }
+        }
+        return cache;
+    }
+    
+    /**
+     * Get the feedback for given counts
+     * 
+     * @param digits Code length
+     * @param exact Digits in the right place
+     * @param misplaced Digits in the code but in the wrong place
+     * @return The feedback
+     */
+    public static CodeFeedback of(int digits, int exact, int misplaced) {
+        if (digits < 1 || digits > CodeBreakerLevel.MAX_DIGITS || exact < 0 || misplaced < 0
+                || exact + misplaced > digits) {
+            throw new IllegalArgumentException(String.format(
+                "Invalid feedback: %d exact, %d misplaced for %d digits", exact, misplaced, digits));
+        }
+        return CACHE[digits][exact][misplaced];
+    }
+    
+    /**
+     * Number of distinct feedbacks a guess can receive; one exact short of a
+     * full match with one misplaced digit is impossible
+     * 
+     * @param digits Code length
+     * @return Possible outcomes per guess
+     */
+    public static int outcomeCount(int digits) {
+        return (digits + 1) * (digits + 2) / 2 - 1;
+    }
+    
+    public int getDigits() {
+        return digits;
+    }
+    
+    public int getExact() {
+        return exact;
+    }
+    
+    public int getMisplaced() {
+        return misplaced;
+    }
+    
+    /**
+     * Check whether the guess was the code
+     * 
+     * @return true if every digit is in place
+     */
+    public boolean isCorrect() {
+        return exact == digits;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("CodeFeedback[exact=%d, misplaced=%d]", exact, misplaced);
+    }
+}
@@ -0,0 +1,116 @@
+package com.michaelsemera.digitdash;
+
+/**
+ * A code-breaker level: find an N-digit code, leading zeros and repeated
+ * digits allowed, from exact and misplaced digit counts
+ * 
+ * Codes are handled as ints from 0 to 10^N - 1, so the range methods of
+ * {@link GameLevel} describe the code space.
+ * 
+ * @author Michael Semera
+ */
+public final class CodeBreakerLevel implements GameLevel {
+    
+    public static final int MIN_DIGITS = 1;
+    public static final int MAX_DIGITS = 8;
+    
+    private final int digits;
+    private final int maxAttempts;
+    private final double scoreMultiplier;
+    
+    /**
+     * Constructor for a level with the default attempt budget
+     * 
+     * @param digits Code length
+     */
+    public CodeBreakerLevel(int digits) {
+        this(digits, 2 * digits + 2);
+    }
+    
+    /**
+     * Constructor for a code-breaker level
+     * 
+     * @param digits Code length
+     * @param maxAttempts Maximum allowed attempts
+     */
+    public CodeBreakerLevel(int digits, int maxAttempts) {
+        if (digits < MIN_DIGITS || digits > MAX_DIGITS || maxAttempts <= 0) {
+            throw new IllegalArgumentException(String.format(
+                "Invalid code-breaker level: %d digits, %d attempts", digits, maxAttempts));
+        }
+        this.digits = digits;
+        this.maxAttempts = maxAttempts;
+        this.scoreMultiplier = ScoreManager.codeMultiplierFor(digits, maxAttempts);
+    }
+    
+    @Override
+    public String name() {
+        return "CODE-BREAKER";
+    }
+    
+    public int getDigits() {
+        return digits;
+    }
+    
+    @Override
+    public int getMinRange() {
+        return 0;
+    }
+    
+    @Override
+    public int getMaxRange() {
+        return CodeBreaker.codeCount(digits) - 1;
+    }
+    
+    @Override
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+    
+    @Override
+    public double getScoreMultiplier() {
+        return scoreMultiplier;
+    }
+    
+    @Override
+    public double getHardness() {
+        return ScoreManager.codeHardness(digits, maxAttempts);
+    }
+    
+    /**
+     * Get the fixed difficulty closest in hardness
+     * 
+     * @return Closest fixed difficulty
+     */
+    @Override
+    public Difficulty getBaseDifficulty() {
+        return Difficulty.closestTo(getHardness());
+    }
+    
+    /**
+     * Get the category records are kept under: codes of one length and
+     * attempt budget are comparable, other code-breaker games are not
+     * 
+     * @return Statistics category, e.g. "4-DIGIT CODE"
+     */
+    @Override
+    public String getStatsCategory() {
+        String category = digits + "-DIGIT CODE";
+        return maxAttempts == 2 * digits + 2 ? category : category + " IN " + maxAttempts;
+    }
+    
+    /**
+     * Get description of the level
+     * 
+     * @return Human-readable description
+     */
+    public String getDescription() {
+        return String.format("%s (%d digits, %d attempts, x%.2f)",
+                             name(), digits, maxAttempts, scoreMultiplier);
+    }
+    
+    @Override
+    public String toString() {
+        return getDescription();
+    }
+}
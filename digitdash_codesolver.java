@@ -0,0 +1,276 @@
+package com.michaelsemera.digitdash;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Candidate tracker and hint engine for code-breaker games
+ * 
+ * Keeps the set of codes still consistent with every feedback so far, as a
+ * bitset over the whole code space while it is large and as a packed int
+ * array of codes once it is small. Pruning splits the set into chunks that
+ * are filtered in parallel, comparing each candidate with the guess through
+ * {@link CodeBreaker}'s lookup tables; an eight-digit space is 10^8 bits,
+ * 12.5 MB. Hints pick, from a sample of candidates, the guess that leaves
+ * the fewest candidates on average.
+ * 
+ * @author Michael Semera
+ */
+public final class CodeSolver {
+    
+    private static final int SPARSE_LIMIT = 1 << 16;
+    private static final int CHUNK_WORDS = 1 << 12;
+    private static final int CHUNK_CODES = 1 << 14;
+    private static final int HINT_GUESSES = 64;
+    private static final int HINT_TARGETS = 4096;
+    private static final int HALF = 10_000;
+    
+    private final int digits;
+    private final int space;
+    
+    // Dense form; null once the set has been packed into codes
+    private long[] bits;
+    private int[] codes;
+    private int size;
+    
+    /**
+     * Constructor for a solver that starts with every code possible
+     * 
+     * @param digits Code length
+     */
+    public CodeSolver(int digits) {
+        if (digits < CodeBreakerLevel.MIN_DIGITS || digits > CodeBreakerLevel.MAX_DIGITS) {
+            throw new IllegalArgumentException("Unsupported code length: " + digits);
+        }
+        this.digits = digits;
+        this.space = CodeBreaker.codeCount(digits);
+        this.size = space;
+        
+        if (space <= SPARSE_LIMIT) {
+            codes = new int[space];
+            for (int i = 0; i < space; i++) {
+                codes[i] = i;
+            }
+        } else {
+            bits = new long[(space + 63) >>> 6];
+            Arrays.fill(bits, -1L);
+            int tail = space & 63;
+            if (tail != 0) {
+                bits[bits.length - 1] = (1L << tail) - 1;
+            }
+        }
+    }
+    
+    /**
+     * Remove every candidate that would not have produced this feedback
+     * 
+     * @param guess The guess made
+     * @param feedback The feedback it received
+     */
+    public void prune(int guess, CodeFeedback feedback) {
+        if (feedback.getDigits() != digits) {
+            throw new IllegalArgumentException("Feedback is for " + feedback.getDigits() + " digits");
+        }
+        int target = CodeBreaker.raw(feedback);
+        int guessNibbles = CodeBreaker.nibbles(guess);
+        long guessCounts = CodeBreaker.counts(guess);
+        
+        if (bits != null) {
+            pruneDense(target, guessNibbles, guessCounts);
+            if (size <= SPARSE_LIMIT) {
+                pack();
+            }
+        } else {
+            pruneSparse(target, guessNibbles, guessCounts);
+        }
+    }
+    
+    private void pruneDense(int target, int guessNibbles, long guessCounts) {
+        int chunks = (bits.length + CHUNK_WORDS - 1) / CHUNK_WORDS;
+        size = IntStream.range(0, chunks).parallel()
+            .map(chunk -> pruneWords(chunk * CHUNK_WORDS, Math.min(bits.length, (chunk + 1) * CHUNK_WORDS),
+                                     target, guessNibbles, guessCounts))
+            .sum();
+    }
+    
+    /**
+     * Filter a run of bitset words; codes within a word are consecutive, so
+     * the table halves are looked up once per word
+     * 
+     * @return Candidates kept
+     */
+    private int pruneWords(int from, int to, int target, int guessNibbles, long guessCounts) {
+        int kept = 0;
+        for (int w = from; w < to; w++) {
+            long word = bits[w];
+            if (word == 0) continue;
+            
+            int base = w << 6;
+            int high = base / HALF;
+            int low = base % HALF;
+            long keep = word;
+            
+            while (word != 0) {
+                int bit = Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                
+                int h = high;
+                int l = low + bit;
+                if (l >= HALF) {
+                    h++;
+                    l -= HALF;
+                }
+                int raw = CodeBreaker.compare(CodeBreaker.nibblesOfHalves(h, l),
+                                              CodeBreaker.countsOfHalves(h, l), guessNibbles, guessCounts);
+                if (raw != target) {
+                    keep &= ~(1L << bit);
+                }
+            }
+            bits[w] = keep;
+            kept += Long.bitCount(keep);
+        }
+        return kept;
+    }
+    
+    private void pruneSparse(int target, int guessNibbles, long guessCounts) {
+        int chunks = (size + CHUNK_CODES - 1) / CHUNK_CODES;
+        int[] kept = new int[chunks];
+        IntStream range = IntStream.range(0, chunks);
+        if (chunks > 1) {
+            range = range.parallel();
+        }
+        
+        // Each chunk compacts its survivors to its own start
+        range.forEach(chunk -> {
+            int from = chunk * CHUNK_CODES;
+            int to = Math.min(size, from + CHUNK_CODES);
+            int out = from;
+            for (int i = from; i < to; i++) {
+                int code = codes[i];
+                if (CodeBreaker.compare(CodeBreaker.nibbles(code), CodeBreaker.counts(code),
+                                        guessNibbles, guessCounts) == target) {
+                    codes[out++] = code;
+                }
+            }
+            kept[chunk] = out - from;
+        });
+        
+        int total = 0;
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            System.arraycopy(codes, chunk * CHUNK_CODES, codes, total, kept[chunk]);
+            total += kept[chunk];
+        }
+        size = total;
+    }
+    
+    /**
+     * Switch from the bitset to a packed array of the remaining codes
+     */
+    private void pack() {
+        codes = new int[size];
+        int n = 0;
+        for (int w = 0; w < bits.length; w++) {
+            long word = bits[w];
+            while (word != 0) {
+                codes[n++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        bits = null;
+    }
+    
+    /**
+     * Get how many codes are still possible
+     * 
+     * @return Candidate count
+     */
+    public int getCandidateCount() {
+        return size;
+    }
+    
+    /**
+     * Check whether a code is still possible
+     * 
+     * @param code The code
+     * @return true if consistent with every feedback so far
+     */
+    public boolean isCandidate(int code) {
+        if (code < 0 || code >= space) return false;
+        if (bits != null) {
+            return (bits[code >>> 6] & (1L << code)) != 0;
+        }
+        return Arrays.binarySearch(codes, 0, size, code) >= 0;
+    }
+    
+    /**
+     * Suggest a next guess: of a sample of candidates, the one whose
+     * feedback would split a sample of the candidates into the smallest
+     * groups on average
+     * 
+     * @return Suggested code, or -1 if no code fits the feedback given
+     */
+    public int suggest() {
+        if (size == 0) return -1;
+        
+        int[] guesses = sample(HINT_GUESSES);
+        int[] targets = sample(HINT_TARGETS);
+        long[] scores = new long[guesses.length];
+        
+        IntStream.range(0, guesses.length).parallel().forEach(g -> {
+            int guessNibbles = CodeBreaker.nibbles(guesses[g]);
+            long guessCounts = CodeBreaker.counts(guesses[g]);
+            int[] groups = new int[256];
+            for (int code : targets) {
+                groups[CodeBreaker.compare(CodeBreaker.nibbles(code), CodeBreaker.counts(code),
+                                           guessNibbles, guessCounts)]++;
+            }
+            long sumOfSquares = 0;
+            for (int group : groups) {
+                sumOfSquares += (long) group * group;
+            }
+            scores[g] = sumOfSquares;
+        });
+        
+        int best = 0;
+        for (int g = 1; g < guesses.length; g++) {
+            if (scores[g] < scores[best]) {
+                best = g;
+            }
+        }
+        return guesses[best];
+    }
+    
+    /**
+     * Take up to count candidates spread evenly over the set. In bitset form
+     * each sample is the first candidate of its stretch of words, so the
+     * whole bitset is scanned at most once.
+     */
+    private int[] sample(int count) {
+        if (bits == null) {
+            int n = Math.min(count, size);
+            int[] sample = new int[n];
+            for (int i = 0; i < n; i++) {
+                sample[i] = codes[(int) ((long) i * size / n)];
+            }
+            return sample;
+        }
+        
+        int[] sample = new int[count];
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            int from = (int) ((long) i * bits.length / count);
+            int to = (int) ((long) (i + 1) * bits.length / count);
+            for (int w = from; w < to; w++) {
+                if (bits[w] != 0) {
+                    sample[n++] = (w << 6) + Long.numberOfTrailingZeros(bits[w]);
+                    break;
+                }
+            }
+        }
+        return Arrays.copyOf(sample, n);
+    }
+    
+    public int getDigits() {
+        return digits;
+    }
+}
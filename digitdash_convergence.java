@@ -0,0 +1,296 @@
+package com.michaelsemera.digitdash;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Convergence check for the sharded statistics layer
+ * 
+ * Records random games for many players on random {@link StatsNode}s of an
+ * in-process cluster whose transport delivers batches late, out of order and
+ * sometimes twice. The same games are recorded in plain {@link PlayerStats},
+ * one per player and one for everybody. After each phase every node
+ * flushes, and the cluster-wide aggregate and every player's owner replica
+ * must report what those PlayerStats report: totals, win rate, and wins,
+ * best and average attempts per difficulty. Some games are adaptive, which
+ * count towards the totals but not the fixed difficulties. The phases are
+ * steady play, a node joining the ring and a node leaving it, so owner
+ * hand-over is checked as well as delivery. Exits with status 1 on any
+ * mismatch.
+ * 
+ * Usage: java -cp bin com.michaelsemera.digitdash.ShardConvergence
+ *        [--nodes N] [--players N] [--games N] [--batch N] [--seed N]
+ * 
+ * @author Michael Semera
+ */
+public class ShardConvergence {
+    
+    private static final Difficulty[] DIFFICULTIES = Difficulty.values();
+    
+    private final ConsistentHashRing ring;
+    private final ChaoticTransport transport;
+    private final Map<String, StatsNode> nodes;
+    private final Map<String, PlayerStats> reference;
+    private final PlayerStats referenceTotals;
+    private final List<String> players;
+    private final int batchSize;
+    private final SplittableRandom random;
+    private int nextNode;
+    
+    /**
+     * Constructor for a cluster
+     * 
+     * @param nodeCount Nodes to start with
+     * @param playerCount Distinct players
+     * @param batchSize Dirty players that trigger a flush on a node
+     * @param seed Seed for games and delivery order
+     */
+    public ShardConvergence(int nodeCount, int playerCount, int batchSize, long seed) {
+        this.ring = new ConsistentHashRing();
+        this.random = new SplittableRandom(seed);
+        this.transport = new ChaoticTransport(random.split());
+        this.nodes = new LinkedHashMap<>();
+        this.reference = new HashMap<>();
+        this.referenceTotals = new PlayerStats();
+        this.players = new ArrayList<>(playerCount);
+        this.batchSize = batchSize;
+        
+        for (int i = 0; i < nodeCount; i++) {
+            addNode();
+        }
+        for (int i = 0; i < playerCount; i++) {
+            players.add("player-" + i);
+        }
+    }
+    
+    /**
+     * Start a node and put it on the ring
+     * 
+     * @return The new node's id
+     */
+    String addNode() {
+        String id = "node-" + nextNode++;
+        StatsNode node = new StatsNode(id, ring, transport, batchSize);
+        transport.register(node);
+        nodes.put(id, node);
+        return id;
+    }
+    
+    /**
+     * Take a node off the ring. It hands its local counters to the new
+     * owners before leaving.
+     * 
+     * @param id Node id
+     */
+    void removeNode(String id) {
+        ring.removeNode(id);
+        StatsNode node = nodes.remove(id);
+        node.resendAll();
+        node.flush();
+    }
+    
+    /**
+     * Record random games on random nodes, delivering some batches as they go
+     * 
+     * @param games Games to record
+     */
+    void play(int games) {
+        List<StatsNode> live = new ArrayList<>(nodes.values());
+        for (int i = 0; i < games; i++) {
+            String player = players.get(random.nextInt(players.size()));
+            StatsNode node = live.get(random.nextInt(live.size()));
+            PlayerStats expected = reference.computeIfAbsent(player, p -> new PlayerStats());
+            GameLevel level = random.nextInt(10) == 0
+                ? new AdaptiveDifficulty(1, 50 + random.nextInt(450), 6 + random.nextInt(6))
+                : DIFFICULTIES[random.nextInt(DIFFICULTIES.length)];
+            
+            if (random.nextInt(10) < 7) {
+                int attempts = 1 + random.nextInt(level.getMaxAttempts());
+                long timeTaken = 5 + random.nextInt(300);
+                int score = 100 + random.nextInt(5000);
+                node.recordWin(player, level, attempts, timeTaken, score);
+                expected.recordWin(level, attempts, timeTaken, score);
+                referenceTotals.recordWin(level, attempts, timeTaken, score);
+            } else {
+                node.recordLoss(player);
+                expected.recordLoss(level);
+                referenceTotals.recordLoss(level);
+            }
+            
+            if (random.nextInt(64) == 0) {
+                transport.deliver(random.nextInt(transport.pending() + 1));
+            }
+        }
+    }
+    
+    /**
+     * Flush every node after a ring change or at the end of a phase, then
+     * deliver everything still in flight
+     * 
+     * @param ringChanged Whether owners moved since the last settle
+     */
+    void settle(boolean ringChanged) {
+        for (StatsNode node : nodes.values()) {
+            if (ringChanged) {
+                node.resendAll();
+            }
+            node.flush();
+        }
+        transport.deliver(transport.pending());
+    }
+    
+    /**
+     * Compare the cluster with the reference and print one report line
+     * 
+     * @param phase Phase name
+     * @return true if every total and every player matches
+     */
+    boolean check(String phase) {
+        StatsCrdt actualTotals = StatsNode.aggregate(nodes.values());
+        boolean totalsMatch = sameStats(referenceTotals, actualTotals);
+        
+        int mismatched = 0;
+        for (Map.Entry<String, PlayerStats> entry : reference.entrySet()) {
+            StatsCrdt replica = nodes.get(ring.ownerOf(entry.getKey())).getPlayer(entry.getKey());
+            if (!sameStats(entry.getValue(), replica)) {
+                mismatched++;
+            }
+        }
+        
+        boolean converged = totalsMatch && mismatched == 0;
+        System.out.printf("  %-24s %6d %10d %10d %12s %10d  %s%n",
+                          phase, nodes.size(), referenceTotals.getTotalGames(), actualTotals.getTotalGames(),
+                          totalsMatch ? "match" : "DIFFER", mismatched, converged ? "OK" : "DIVERGED");
+        return converged;
+    }
+    
+    /**
+     * Compare a replica with the PlayerStats that saw the same games, through
+     * the getters both offer
+     */
+    private static boolean sameStats(PlayerStats expected, StatsCrdt actual) {
+        if (expected.getTotalGames() != actual.getTotalGames()
+                || expected.getTotalWins() != actual.getTotalWins()
+                || expected.getTotalLosses() != actual.getTotalLosses()
+                || expected.getTotalScore() != actual.getTotalScore()
+                || expected.getWinRate() != actual.getWinRate()) {
+            return false;
+        }
+        for (Difficulty difficulty : DIFFICULTIES) {
+            if (expected.getWins(difficulty) != actual.getWins(difficulty)
+                    || expected.getBestAttempts(difficulty) != actual.getBestAttempts(difficulty)
+                    || expected.getAverageAttempts(difficulty) != actual.getAverageAttempts(difficulty)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Loopback transport that holds batches back and delivers them in random
+     * order, duplicating some
+     */
+    static class ChaoticTransport extends StatsNode.LoopbackTransport {
+        
+        private final List<String> targets = new ArrayList<>();
+        private final List<ByteBuffer> batches = new ArrayList<>();
+        private final SplittableRandom random;
+        
+        ChaoticTransport(SplittableRandom random) {
+            this.random = random;
+        }
+        
+        @Override
+        public void send(String nodeId, ByteBuffer batch) {
+            targets.add(nodeId);
+            batches.add(batch);
+            if (random.nextInt(8) == 0) {
+                targets.add(nodeId);
+                batches.add(batch.duplicate());
+            }
+        }
+        
+        int pending() {
+            return batches.size();
+        }
+        
+        /**
+         * Deliver some of the held batches, picked at random
+         * 
+         * @param count Batches to deliver
+         */
+        void deliver(int count) {
+            for (int i = 0; i < count && !batches.isEmpty(); i++) {
+                int pick = random.nextInt(batches.size());
+                int last = batches.size() - 1;
+                String target = targets.get(pick);
+                ByteBuffer batch = batches.get(pick);
+                targets.set(pick, targets.get(last));
+                batches.set(pick, batches.get(last));
+                targets.remove(last);
+                batches.remove(last);
+                super.send(target, batch);
+            }
+        }
+    }
+    
+    /**
+     * Main entry point
+     */
+    public static void main(String[] args) {
+        int nodeCount = 4;
+        int playerCount = 2_000;
+        int games = 100_000;
+        int batchSize = StatsNode.DEFAULT_BATCH_SIZE;
+        long seed = 42;
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--nodes" -> nodeCount = Integer.parseInt(args[++i]);
+                case "--players" -> playerCount = Integer.parseInt(args[++i]);
+                case "--games" -> games = Integer.parseInt(args[++i]);
+                case "--batch" -> batchSize = Integer.parseInt(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (nodeCount < 2) {
+            throw new IllegalArgumentException("At least 2 nodes are needed: " + nodeCount);
+        }
+        
+        ShardConvergence cluster = new ShardConvergence(nodeCount, playerCount, batchSize, seed);
+        System.out.printf("Shard convergence (%d players, %d games per phase, seed %d)%n",
+                          playerCount, games, seed);
+        System.out.println("─────────────────────────────────────────────────────────────");
+        System.out.printf("  %-24s %6s %10s %10s %12s %10s%n",
+                          "Phase", "Nodes", "Games", "Counted", "Totals", "Players≠");
+        
+        boolean converged = true;
+        
+        cluster.play(games);
+        cluster.settle(false);
+        converged &= cluster.check("steady");
+        
+        String joined = cluster.addNode();
+        cluster.play(games);
+        cluster.settle(true);
+        converged &= cluster.check(joined + " joined");
+        
+        String leaving = cluster.nodes.keySet().iterator().next();
+        cluster.play(games);
+        cluster.removeNode(leaving);
+        cluster.settle(true);
+        converged &= cluster.check(leaving + " left");
+        
+        if (!converged) {
+            System.out.println("\nReplicas did not converge");
+            System.exit(1);
+        }
+        System.out.println("\nAll replicas converged");
+    }
+}
@@ -0,0 +1,265 @@
+package com.michaelsemera.digitdash;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mergeable statistics for one player across nodes
+ * 
+ * Every statistic is a G-counter: each node only ever increments its own
+ * entry, the value is the sum over nodes, and merging takes the per-node
+ * maximum. Best attempts per difficulty are min-registers merged by taking
+ * the minimum. Merging is commutative, associative and idempotent, so
+ * deltas can be batched, duplicated or reordered and replicas still
+ * converge. The getters mirror {@link PlayerStats}.
+ * 
+ * @author Michael Semera
+ */
+public final class StatsCrdt {
+    
+    static final int GAMES = 0;
+    static final int WINS = 1;
+    static final int LOSSES = 2;
+    static final int SCORE = 3;
+    private static final int DIFFICULTY_BASE = 4;
+    private static final int DIFFICULTY_WINS = 0;
+    private static final int DIFFICULTY_ATTEMPTS = 1;
+    private static final int DIFFICULTY_TIME = 2;
+    private static final int DIFFICULTY_SLOTS = 3;
+    
+    static final int DIFFICULTIES = Difficulty.values().length;
+    static final int SLOTS = DIFFICULTY_BASE + DIFFICULTIES * DIFFICULTY_SLOTS;
+    
+    private final Map<String, long[]> counters;
+    private final int[] bestAttempts;
+    
+    public StatsCrdt() {
+        this.counters = new HashMap<>();
+        this.bestAttempts = new int[DIFFICULTIES];
+        Arrays.fill(bestAttempts, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Record a win observed on a node. Only the fixed difficulties have
+     * per-difficulty entries; other levels count towards the totals alone.
+     * 
+     * @param node Node recording the game
+     * @param difficulty Difficulty level
+     * @param attempts Attempts taken
+     * @param timeTaken Time taken in seconds
+     * @param score Score achieved
+     */
+    public void recordWin(String node, GameLevel difficulty, int attempts, long timeTaken, int score) {
+        long[] own = counters.computeIfAbsent(node, n -> new long[SLOTS]);
+        own[GAMES]++;
+        own[WINS]++;
+        own[SCORE] += score;
+        
+        if (difficulty instanceof Difficulty fixed) {
+            int base = slot(fixed, 0);
+            own[base + DIFFICULTY_WINS]++;
+            own[base + DIFFICULTY_ATTEMPTS] += attempts;
+            own[base + DIFFICULTY_TIME] += timeTaken;
+            bestAttempts[fixed.ordinal()] = Math.min(bestAttempts[fixed.ordinal()], attempts);
+        }
+    }
+    
+    /**
+     * Record a loss observed on a node
+     * 
+     * @param node Node recording the game
+     */
+    public void recordLoss(String node) {
+        long[] own = counters.computeIfAbsent(node, n -> new long[SLOTS]);
+        own[GAMES]++;
+        own[LOSSES]++;
+    }
+    
+    /**
+     * Merge another replica into this one
+     * 
+     * @param other Replica to merge
+     */
+    public void merge(StatsCrdt other) {
+        for (Map.Entry<String, long[]> entry : other.counters.entrySet()) {
+            mergeNode(entry.getKey(), entry.getValue(), other.bestAttempts);
+        }
+        for (int d = 0; d < DIFFICULTIES; d++) {
+            bestAttempts[d] = Math.min(bestAttempts[d], other.bestAttempts[d]);
+        }
+    }
+    
+    /**
+     * Merge one node's counters and best attempts
+     * 
+     * @param node Node the counters belong to
+     * @param values That node's counters
+     * @param best Best attempts per difficulty
+     */
+    void mergeNode(String node, long[] values, int[] best) {
+        long[] mine = counters.computeIfAbsent(node, n -> new long[SLOTS]);
+        for (int i = 0; i < SLOTS; i++) {
+            mine[i] = Math.max(mine[i], values[i]);
+        }
+        for (int d = 0; d < DIFFICULTIES; d++) {
+            bestAttempts[d] = Math.min(bestAttempts[d], best[d]);
+        }
+    }
+    
+    /**
+     * Add another player's totals into this one, for cluster-wide aggregates.
+     * Unlike {@link #merge} this sums, so each player must be added once.
+     * 
+     * @param other Player statistics to add
+     */
+    public void add(StatsCrdt other) {
+        long[] sum = counters.computeIfAbsent("*", n -> new long[SLOTS]);
+        for (long[] values : other.counters.values()) {
+            for (int i = 0; i < SLOTS; i++) {
+                sum[i] += values[i];
+            }
+        }
+        for (int d = 0; d < DIFFICULTIES; d++) {
+            bestAttempts[d] = Math.min(bestAttempts[d], other.bestAttempts[d]);
+        }
+    }
+    
+    /**
+     * Copy of one node's counters, used as a delta
+     * 
+     * @param node Node id
+     * @return Counters, all zero if the node has recorded nothing
+     */
+    long[] countersFor(String node) {
+        long[] values = counters.get(node);
+        return values == null ? new long[SLOTS] : values.clone();
+    }
+    
+    int[] bestAttempts() {
+        return bestAttempts.clone();
+    }
+    
+    private static int slot(Difficulty difficulty, int offset) {
+        return DIFFICULTY_BASE + difficulty.ordinal() * DIFFICULTY_SLOTS + offset;
+    }
+    
+    long value(int slot) {
+        long total = 0;
+        for (long[] values : counters.values()) {
+            total += values[slot];
+        }
+        return total;
+    }
+    
+    public long getTotalGames() {
+        return value(GAMES);
+    }
+    
+    public long getTotalWins() {
+        return value(WINS);
+    }
+    
+    public long getTotalLosses() {
+        return value(LOSSES);
+    }
+    
+    public long getTotalScore() {
+        return value(SCORE);
+    }
+    
+    /**
+     * Get win rate percentage
+     * 
+     * @return Win rate (0-100)
+     */
+    public double getWinRate() {
+        long games = getTotalGames();
+        if (games == 0) return 0.0;
+        return (double) getTotalWins() / games * 100;
+    }
+    
+    /**
+     * Get average score per win
+     * 
+     * @return Average score
+     */
+    public double getAverageScore() {
+        long wins = getTotalWins();
+        if (wins == 0) return 0.0;
+        return (double) getTotalScore() / wins;
+    }
+    
+    public long getWins(Difficulty difficulty) {
+        return value(slot(difficulty, DIFFICULTY_WINS));
+    }
+    
+    /**
+     * Get best (minimum) attempts for difficulty
+     * 
+     * @param difficulty Difficulty level
+     * @return Best attempts, or 0 if no wins
+     */
+    public int getBestAttempts(Difficulty difficulty) {
+        int best = bestAttempts[difficulty.ordinal()];
+        return best == Integer.MAX_VALUE ? 0 : best;
+    }
+    
+    /**
+     * Get average attempts for difficulty
+     * 
+     * @param difficulty Difficulty level
+     * @return Average attempts
+     */
+    public double getAverageAttempts(Difficulty difficulty) {
+        long wins = getWins(difficulty);
+        if (wins == 0) return 0.0;
+        return (double) value(slot(difficulty, DIFFICULTY_ATTEMPTS)) / wins;
+    }
+    
+    /**
+     * Get average solve time for difficulty
+     * 
+     * @param difficulty Difficulty level
+     * @return Average time in seconds
+     */
+    public double getAverageTime(Difficulty difficulty) {
+        long wins = getWins(difficulty);
+        if (wins == 0) return 0.0;
+        return (double) value(slot(difficulty, DIFFICULTY_TIME)) / wins;
+    }
+    
+    /**
+     * Write one node's delta for a player
+     */
+    static void writeDelta(ByteBuffer out, String player, String node, long[] values, int[] best) {
+        writeString(out, player);
+        writeString(out, node);
+        for (long value : values) {
+            out.putLong(value);
+        }
+        for (int value : best) {
+            out.putInt(value);
+        }
+    }
+    
+    /**
+     * Worst-case encoded size of a delta
+     */
+    static int deltaSize(String player, String node) {
+        return 4 + 3 * (player.length() + node.length()) + SLOTS * 8 + DIFFICULTIES * 4;
+    }
+    
+    static void writeString(ByteBuffer out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.putShort((short) bytes.length).put(bytes);
+    }
+    
+    static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,176 @@
+package com.michaelsemera.digitdash;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * Daily challenge with targets every node can derive on its own
+ * 
+ * Round N of a day is a pure function of a shared seed, the UTC date, the
+ * difficulty and N, so nodes configured with the same seed serve the same
+ * sequence without talking to each other or to a central store. Today's
+ * schedule is precomputed once and swapped out when the date rolls over.
+ * 
+ * @author Michael Semera
+ */
+public class DailyChallenge {
+    
+    public static final int DEFAULT_ROUNDS_PER_DAY = 10;
+    
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    
+    private final long seed;
+    private final int roundsPerDay;
+    private final Clock clock;
+    private final ScoreManager scoreManager;
+    
+    private volatile Schedule schedule;
+    
+    /**
+     * Constructor for a challenge on the system UTC clock
+     * 
+     * @param seed Seed shared by every node
+     */
+    public DailyChallenge(long seed) {
+        this(seed, DEFAULT_ROUNDS_PER_DAY, Clock.systemUTC(), new ScoreManager());
+    }
+    
+    /**
+     * Constructor with custom rounds, clock and scoring
+     * 
+     * @param seed Seed shared by every node
+     * @param roundsPerDay Rounds in each day's schedule
+     * @param clock Clock deciding the active day
+     * @param scoreManager Scoring used by the daily leaderboard
+     */
+    public DailyChallenge(long seed, int roundsPerDay, Clock clock, ScoreManager scoreManager) {
+        if (roundsPerDay <= 0) {
+            throw new IllegalArgumentException("Rounds per day must be positive: " + roundsPerDay);
+        }
+        this.seed = seed;
+        this.roundsPerDay = roundsPerDay;
+        this.clock = clock;
+        this.scoreManager = scoreManager;
+    }
+    
+    /**
+     * Derive the target for any day, difficulty and round in O(1)
+     * 
+     * @param seed Seed shared by every node
+     * @param date Challenge date (UTC)
+     * @param difficulty Difficulty level
+     * @param round Round number, starting at 0
+     * @return Target number within the difficulty's range
+     */
+    public static int targetFor(long seed, LocalDate date, Difficulty difficulty, int round) {
+        // Key on the name rather than the ordinal so reordering the enum keeps old schedules
+        long key = mix(seed + GOLDEN_GAMMA * date.toEpochDay());
+        key = mix(key + GOLDEN_GAMMA * difficulty.name().hashCode());
+        key = mix(key + GOLDEN_GAMMA * round);
+        
+        // Unbiased bounded draw; rejection is rare and stays deterministic
+        int bound = difficulty.getRangeSize();
+        long counter = 0;
+        while (true) {
+            int bits = (int) (mix(key + GOLDEN_GAMMA * counter++) >>> 33);
+            int value = bits % bound;
+            if (bits - value + (bound - 1) >= 0) {
+                return difficulty.getMinRange() + value;
+            }
+        }
+    }
+    
+    /**
+     * SplitMix64 finaliser
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
+    /**
+     * Get today's target for a round, from the cached schedule
+     * 
+     * @param difficulty Difficulty level
+     * @param round Round number, starting at 0
+     * @return Target number
+     */
+    public int getTarget(Difficulty difficulty, int round) {
+        if (round < 0 || round >= roundsPerDay) {
+            throw new IllegalArgumentException("Round must be between 0 and " + (roundsPerDay - 1) + ": " + round);
+        }
+        return currentSchedule().targets[difficulty.ordinal()][round];
+    }
+    
+    /**
+     * Start a round of today's challenge on an engine
+     * 
+     * @param engine Engine to start
+     * @param difficulty Difficulty level
+     * @param round Round number, starting at 0
+     */
+    public void startRound(GameEngine engine, Difficulty difficulty, int round) {
+        engine.startNewGame(difficulty, getTarget(difficulty, round));
+    }
+    
+    /**
+     * Get today's leaderboard
+     * 
+     * @return Leaderboard for the active day
+     */
+    public DailyLeaderboard getLeaderboard() {
+        return currentSchedule().leaderboard;
+    }
+    
+    /**
+     * Get the active challenge date
+     * 
+     * @return Today's date (UTC)
+     */
+    public LocalDate getDate() {
+        return currentSchedule().date;
+    }
+    
+    public int getRoundsPerDay() {
+        return roundsPerDay;
+    }
+    
+    private Schedule currentSchedule() {
+        LocalDate today = LocalDate.now(clock.withZone(ZoneOffset.UTC));
+        Schedule current = schedule;
+        if (current == null || !current.date.equals(today)) {
+            synchronized (this) {
+                current = schedule;
+                if (current == null || !current.date.equals(today)) {
+                    current = new Schedule(today);
+                    schedule = current;
+                }
+            }
+        }
+        return current;
+    }
+    
+    /**
+     * Precomputed targets and leaderboard for one day
+     */
+    private final class Schedule {
+        
+        private final LocalDate date;
+        private final int[][] targets;
+        private final DailyLeaderboard leaderboard;
+        
+        Schedule(LocalDate date) {
+            this.date = date;
+            this.targets = new int[Difficulty.values().length][roundsPerDay];
+            this.leaderboard = new DailyLeaderboard(date, roundsPerDay, scoreManager);
+            
+            for (Difficulty diff : Difficulty.values()) {
+                for (int round = 0; round < roundsPerDay; round++) {
+                    targets[diff.ordinal()][round] = targetFor(seed, date, diff, round);
+                }
+            }
+        }
+    }
+}
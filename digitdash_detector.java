@@ -0,0 +1,201 @@
+package com.michaelsemera.digitdash;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Online detector for scripted play
+ * 
+ * Bisection is the optimal strategy, so playing it is not suspicious on its
+ * own; what gives a bot away is playing it at machine speed or with machine
+ * regularity. Each session tracks the range still consistent with the
+ * feedback so far and scores every guess against that range's midpoint,
+ * alongside the think time since the previous guess. A session uses a fixed
+ * handful of fields however long the game runs, and each guess costs a clock
+ * read and a few arithmetic operations.
+ * 
+ * @author Michael Semera
+ */
+public class BotDetector {
+    
+    public static final long DEFAULT_FAST_GUESS_NANOS = 150_000_000L; // 150 ms
+    public static final double DEFAULT_FLAG_THRESHOLD = 0.8;
+    public static final int DEFAULT_MIN_GUESSES = 3;
+    
+    private static final int MIDPOINT_TOLERANCE = 1;
+    private static final double REGULAR_INTERVAL_CV = 0.05;
+    private static final int MIN_REGULARITY_SAMPLES = 5;
+    
+    private final LongSupplier nanoClock;
+    private final long fastGuessNanos;
+    private final double flagThreshold;
+    private final int minGuesses;
+    
+    private final AtomicLong nextSessionId;
+    private final LongAdder sessionCount;
+    private final LongAdder flaggedCount;
+    
+    public BotDetector() {
+        this(System::nanoTime, DEFAULT_FAST_GUESS_NANOS, DEFAULT_FLAG_THRESHOLD, DEFAULT_MIN_GUESSES);
+    }
+    
+    /**
+     * Constructor with custom thresholds
+     * 
+     * @param nanoClock Monotonic clock in nanoseconds
+     * @param fastGuessNanos Think time below which a guess counts as fast
+     * @param flagThreshold Suspicion (0-1) at which a session is flagged
+     * @param minGuesses Guesses needed before a session can be flagged
+     */
+    public BotDetector(LongSupplier nanoClock, long fastGuessNanos, double flagThreshold,
+                       int minGuesses) {
+        this.nanoClock = nanoClock;
+        this.fastGuessNanos = fastGuessNanos;
+        this.flagThreshold = flagThreshold;
+        this.minGuesses = minGuesses;
+        this.nextSessionId = new AtomicLong();
+        this.sessionCount = new LongAdder();
+        this.flaggedCount = new LongAdder();
+    }
+    
+    /**
+     * Start tracking a new game
+     * 
+     * @param difficulty Difficulty of the game
+     * @return Session to feed with guesses
+     */
+    public Session newSession(GameLevel difficulty) {
+        sessionCount.increment();
+        return new Session(nextSessionId.incrementAndGet(), difficulty, nanoClock.getAsLong());
+    }
+    
+    /**
+     * Get the number of sessions started
+     * 
+     * @return Session count
+     */
+    public long getSessionCount() {
+        return sessionCount.sum();
+    }
+    
+    /**
+     * Get the number of sessions flagged as scripted
+     * 
+     * @return Flagged session count
+     */
+    public long getFlaggedCount() {
+        return flaggedCount.sum();
+    }
+    
+    /**
+     * Per-game detector state; not thread-safe, like {@link GameEngine}
+     */
+    public final class Session {
+        
+        private final long id;
+        private int low;
+        private int high;
+        private long lastGuessAt;
+        
+        private int guesses;
+        private int optimalGuesses;
+        private int fastGuesses;
+        
+        // Welford running mean and variance of think time
+        private double meanInterval;
+        private double intervalM2;
+        
+        private boolean flagged;
+        
+        private Session(long id, GameLevel difficulty, long startedAt) {
+            this.id = id;
+            this.low = difficulty.getMinRange();
+            this.high = difficulty.getMaxRange();
+            this.lastGuessAt = startedAt;
+        }
+        
+        /**
+         * Score a guess and the feedback it received
+         * 
+         * @param guess The guess made
+         * @param result Feedback from the engine
+         */
+        public void onGuess(int guess, GuessResult result) {
+            long now = nanoClock.getAsLong();
+            long interval = now - lastGuessAt;
+            lastGuessAt = now;
+            guesses++;
+            
+            int midpoint = (low + high) >>> 1;
+            if (Math.abs(guess - midpoint) <= MIDPOINT_TOLERANCE) {
+                optimalGuesses++;
+            }
+            if (interval < fastGuessNanos) {
+                fastGuesses++;
+            }
+            
+            double delta = interval - meanInterval;
+            meanInterval += delta / guesses;
+            intervalM2 += delta * (interval - meanInterval);
+            
+            if (result == GuessResult.TOO_LOW) {
+                low = Math.max(low, guess + 1);
+            } else if (result == GuessResult.TOO_HIGH) {
+                high = Math.min(high, guess - 1);
+            }
+            
+            if (!flagged && guesses >= minGuesses && getSuspicion() >= flagThreshold) {
+                flagged = true;
+                flaggedCount.increment();
+            }
+        }
+        
+        /**
+         * Get how strongly the session looks scripted
+         * 
+         * @return Suspicion from 0 (human) to 1 (bot)
+         */
+        public double getSuspicion() {
+            if (guesses == 0) return 0.0;
+            double optimalRatio = (double) optimalGuesses / guesses;
+            double fastRatio = (double) fastGuesses / guesses;
+            return optimalRatio * Math.max(fastRatio, getRegularity());
+        }
+        
+        /**
+         * Regularity of think time: 1 when every interval is identical,
+         * falling to 0 as the coefficient of variation reaches 5%
+         */
+        private double getRegularity() {
+            if (guesses < MIN_REGULARITY_SAMPLES || meanInterval <= 0) return 0.0;
+            double cv = Math.sqrt(intervalM2 / (guesses - 1)) / meanInterval;
+            return 1.0 - Math.min(1.0, cv / REGULAR_INTERVAL_CV);
+        }
+        
+        /**
+         * Check whether the session has been flagged; flags are sticky
+         * 
+         * @return true if the session should be quarantined
+         */
+        public boolean isFlagged() {
+            return flagged;
+        }
+        
+        public long getId() {
+            return id;
+        }
+        
+        public int getGuesses() {
+            return guesses;
+        }
+        
+        public int getOptimalGuesses() {
+            return optimalGuesses;
+        }
+        
+        public int getFastGuesses() {
+            return fastGuesses;
+        }
+    }
+}
@@ -5,7 +5,7 @@ package com.michaelsemera.digitdash;
  * 
  * @author Michael Semera
  */
-public enum Difficulty {
+public enum Difficulty implements GameLevel {
     EASY(1, 50, 12, 1.0),
     MEDIUM(1, 100, 10, 1.5),
     HARD(1, 500, 8, 2.0);
@@ -30,6 +30,11 @@ public enum Difficulty {
         this.scoreMultiplier = scoreMultiplier;
     }
     
+    @Override
+    public Difficulty getBaseDifficulty() {
+        return this;
+    }
+    
     public int getMinRange() {
         return minRange;
     }
@@ -55,6 +60,22 @@ public enum Difficulty {
         return maxRange - minRange + 1;
     }
     
+    /**
+     * Get the fixed difficulty closest in hardness to a level
+     * 
+     * @param hardness Hardness of the level
+     * @return Closest fixed difficulty
+     */
+    public static Difficulty closestTo(double hardness) {
+        Difficulty closest = EASY;
+        for (Difficulty diff : values()) {
+            if (Math.abs(diff.getHardness() - hardness) < Math.abs(closest.getHardness() - hardness)) {
+                closest = diff;
+            }
+        }
+        return closest;
+    }
+    
     /**
      * Get description of the difficulty
      * 
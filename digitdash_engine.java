@@ -2,6 +2,7 @@ package com.michaelsemera.digitdash;
 
 import java.security.SecureRandom;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -12,30 +13,106 @@ import java.util.List;
 public class GameEngine {
     
     private int targetNumber;
-    private Difficulty currentDifficulty;
-    private final SecureRandom random;
-    private final List<Integer> guessHistory;
+    private GameLevel currentDifficulty;
+    private SecureRandom random; // Created on first use, as seeding can block on entropy
+    private int[] guessHistory; // First attemptCount entries are this game's guesses
     private int attemptCount;
+    private int codeDigits; // 0 unless a code-breaker game is in progress
+    private final BotDetector botDetector;
+    private BotDetector.Session detectorSession;
+    private final GameEventBus eventBus;
+    private long gameId;
+    private long startTime;
+    private long endTime; // 0 while the game is in progress
     
     public GameEngine() {
-        this.random = new SecureRandom();
-        this.guessHistory = new ArrayList<>();
+        this(null);
+    }
+    
+    /**
+     * Constructor that scores every game for scripted play
+     * 
+     * @param botDetector Detector to feed with guesses, or null for none
+     */
+    public GameEngine(BotDetector botDetector) {
+        this(botDetector, null);
+    }
+    
+    /**
+     * Constructor that also publishes every game start and guess
+     * 
+     * @param botDetector Detector to feed with guesses, or null for none
+     * @param eventBus Bus to publish game events to, or null for none
+     */
+    public GameEngine(BotDetector botDetector, GameEventBus eventBus) {
+        this.guessHistory = new int[16];
         this.attemptCount = 0;
+        this.botDetector = botDetector;
+        this.eventBus = eventBus;
     }
     
     /**
      * Start a new game with specified difficulty
      * 
-     * @param difficulty The difficulty level
+     * @param difficulty The difficulty level, fixed or calibrated
      */
-    public void startNewGame(Difficulty difficulty) {
-        this.currentDifficulty = difficulty;
-        this.targetNumber = generateRandomNumber(
+    public void startNewGame(GameLevel difficulty) {
+        startNewGame(difficulty, generateRandomNumber(
             difficulty.getMinRange(), 
             difficulty.getMaxRange()
-        );
-        this.guessHistory.clear();
+        ));
+    }
+    
+    /**
+     * Start a new game with a predetermined target, e.g. a daily challenge round
+     * 
+     * @param difficulty The difficulty level, fixed or calibrated
+     * @param targetNumber The number to guess
+     */
+    public void startNewGame(GameLevel difficulty, int targetNumber) {
+        if (targetNumber < difficulty.getMinRange() || targetNumber > difficulty.getMaxRange()) {
+            throw new IllegalArgumentException("Target " + targetNumber + " is outside " + 
+                                               difficulty.getMinRange() + "-" + difficulty.getMaxRange());
+        }
+        begin(difficulty, targetNumber, 0);
+    }
+    
+    /**
+     * Start a code-breaker game with a random code
+     * 
+     * @param level The code-breaker level
+     */
+    public void startCodeGame(CodeBreakerLevel level) {
+        startCodeGame(level, generateRandomNumber(level.getMinRange(), level.getMaxRange()));
+    }
+    
+    /**
+     * Start a code-breaker game with a predetermined code. The bot detector
+     * models higher/lower play, so code-breaker games are not scored by it.
+     * 
+     * @param level The code-breaker level
+     * @param code The code to find
+     */
+    public void startCodeGame(CodeBreakerLevel level, int code) {
+        if (code < level.getMinRange() || code > level.getMaxRange()) {
+            throw new IllegalArgumentException("Not a " + level.getDigits() + "-digit code: " + code);
+        }
+        begin(level, code, level.getDigits());
+    }
+    
+    private void begin(GameLevel difficulty, int targetNumber, int codeDigits) {
+        this.currentDifficulty = difficulty;
+        this.targetNumber = targetNumber;
         this.attemptCount = 0;
+        this.codeDigits = codeDigits;
+        this.detectorSession = botDetector != null && codeDigits == 0 ? botDetector.newSession(difficulty) : null;
+        this.startTime = System.currentTimeMillis();
+        this.endTime = 0;
+        
+        if (eventBus != null) {
+            gameId = eventBus.nextGameId();
+            eventBus.publish(GameEvent.Type.GAME_STARTED, gameId, difficulty, 0, null, 0, 0, false);
+        }
     }
     
     /**
@@ -46,6 +123,9 @@ public class GameEngine {
      * @return Random number
      */
     private int generateRandomNumber(int min, int max) {
+        if (random == null) {
+            random = new SecureRandom();
+        }
         return random.nextInt(max - min + 1) + min;
     }
     
@@ -56,16 +136,133 @@ public class GameEngine {
      * @return Result of the guess
      */
     public GuessResult makeGuess(int guess) {
-        attemptCount++;
-        guessHistory.add(guess);
+        if (codeDigits != 0) {
+            throw new IllegalStateException("A code-breaker game is in progress");
+        }
+        if (attemptCount == guessHistory.length) {
+            guessHistory = Arrays.copyOf(guessHistory, attemptCount * 2);
+        }
+        guessHistory[attemptCount++] = guess;
         
+        GuessResult result;
         if (guess < targetNumber) {
-            return GuessResult.TOO_LOW;
+            result = GuessResult.TOO_LOW;
         } else if (guess > targetNumber) {
-            return GuessResult.TOO_HIGH;
+            result = GuessResult.TOO_HIGH;
         } else {
-            return GuessResult.CORRECT;
+            result = GuessResult.CORRECT;
+        }
+        recordEndIfOver(result == GuessResult.CORRECT);
+        
+        if (detectorSession != null) {
+            detectorSession.onGuess(guess, result);
+        }
+        if (eventBus != null) {
+            publishGuess(guess, result);
+        }
+        return result;
+    }
+    
+    /**
+     * Process a code-breaker guess
+     * 
+     * @param code The code guessed
+     * @return Exact and misplaced digit counts
+     */
+    public CodeFeedback makeCodeGuess(int code) {
+        if (codeDigits == 0) {
+            throw new IllegalStateException("No code-breaker game is in progress");
         }
+        if (code < 0 || code > currentDifficulty.getMaxRange()) {
+            throw new IllegalArgumentException("Not a " + codeDigits + "-digit code: " + code);
+        }
+        if (attemptCount == guessHistory.length) {
+            guessHistory = Arrays.copyOf(guessHistory, attemptCount * 2);
+        }
+        guessHistory[attemptCount++] = code;
+        
+        CodeFeedback feedback = CodeBreaker.feedback(codeDigits, targetNumber, code);
+        recordEndIfOver(feedback.isCorrect());
+        
+        if (eventBus != null) {
+            GameEvent.Type type = GameEvent.Type.GUESS;
+            long timeTaken = 0;
+            if (feedback.isCorrect()) {
+                type = GameEvent.Type.WON;
+                timeTaken = getTimeTaken();
+            } else if (attemptCount >= currentDifficulty.getMaxAttempts()) {
+                type = GameEvent.Type.LOST;
+                timeTaken = getTimeTaken();
+            }
+            eventBus.publish(type, gameId, currentDifficulty, code, feedback, attemptCount, timeTaken);
+        }
+        return feedback;
+    }
+    
+    /**
+     * Publish a guess as one event, typed as the game's end if it was the
+     * winning or the last permitted guess
+     */
+    private void publishGuess(int guess, GuessResult result) {
+        GameEvent.Type type = GameEvent.Type.GUESS;
+        long timeTaken = 0;
+        if (result == GuessResult.CORRECT) {
+            type = GameEvent.Type.WON;
+            timeTaken = getTimeTaken();
+        } else if (attemptCount >= currentDifficulty.getMaxAttempts()) {
+            type = GameEvent.Type.LOST;
+            timeTaken = getTimeTaken();
+        }
+        eventBus.publish(type, gameId, currentDifficulty, guess, result, attemptCount, timeTaken,
+                         isSessionFlagged());
+    }
+    
+    /**
+     * Fix the end time when a guess wins or uses the last attempt
+     */
+    private void recordEndIfOver(boolean won) {
+        if (endTime == 0 && (won || attemptCount >= currentDifficulty.getMaxAttempts())) {
+            endTime = System.currentTimeMillis();
+        }
+    }
+    
+    /**
+     * Get the time since the current game started
+     * 
+     * @return Elapsed time in whole seconds
+     */
+    public long getElapsedSeconds() {
+        return (System.currentTimeMillis() - startTime) / 1000;
+    }
+    
+    /**
+     * Get how long the game took, from its start to its last guess. The end
+     * is captured once, so the published events and the victory screen
+     * score the same duration.
+     * 
+     * @return Game duration in whole seconds, or the elapsed time while the
+     *         game is still in progress
+     */
+    public long getTimeTaken() {
+        return ((endTime != 0 ? endTime : System.currentTimeMillis()) - startTime) / 1000;
+    }
+    
+    /**
+     * Get the id the current game is published under
+     * 
+     * @return Game id, or 0 if the engine has no event bus
+     */
+    public long getGameId() {
+        return gameId;
+    }
+    
+    /**
+     * Check whether the current game has been flagged as scripted
+     * 
+     * @return true if the game's score should be quarantined
+     */
+    public boolean isSessionFlagged() {
+        return detectorSession != null && detectorSession.isFlagged();
     }
     
     /**
@@ -92,7 +289,24 @@ public class GameEngine {
      * @return List of all guesses made
      */
     public List<Integer> getGuessHistory() {
-        return new ArrayList<>(guessHistory);
+        List<Integer> history = new ArrayList<>(attemptCount);
+        for (int i = 0; i < attemptCount; i++) {
+            history.add(guessHistory[i]);
+        }
+        return history;
+    }
+    
+    /**
+     * Get a single guess without copying the history
+     * 
+     * @param index Guess index, from 0 to attempt count - 1
+     * @return The guess
+     */
+    public int getGuess(int index) {
+        if (index < 0 || index >= attemptCount) {
+            throw new IndexOutOfBoundsException("Guess " + index + " of " + attemptCount);
+        }
+        return guessHistory[index];
     }
     
     /**
@@ -102,7 +316,12 @@ public class GameEngine {
      * @return true if already guessed
      */
     public boolean hasBeenGuessed(int guess) {
-        return guessHistory.contains(guess);
+        for (int i = 0; i < attemptCount; i++) {
+            if (guessHistory[i] == guess) {
+                return true;
+            }
+        }
+        return false;
     }
     
     /**
@@ -114,7 +333,8 @@ public class GameEngine {
         int min = currentDifficulty.getMinRange();
         int max = currentDifficulty.getMaxRange();
         
-        for (int guess : guessHistory) {
+        for (int i = 0; i < attemptCount; i++) {
+            int guess = guessHistory[i];
             if (guess < targetNumber && guess >= min) {
                 min = guess + 1;
             } else if (guess > targetNumber && guess <= max) {
@@ -0,0 +1,129 @@
+package com.michaelsemera.digitdash;
+
+/**
+ * One game event, as carried by a {@link GameEventBus}
+ * 
+ * Events live in the bus's preallocated ring slots and are overwritten once
+ * every handler has seen them, so publishing allocates nothing. Handlers must
+ * copy out any field they want to keep rather than hold on to the event.
+ * 
+ * @author Michael Semera
+ */
+public final class GameEvent {
+    
+    /**
+     * Kind of event. Every guess produces exactly one event: the guess that
+     * ends a game is published as WON or LOST instead of GUESS.
+     */
+    public enum Type {
+        GAME_STARTED,
+        GUESS,
+        WON,
+        LOST
+    }
+    
+    private Type type;
+    private long gameId;
+    private GameLevel level;
+    private int guess;
+    private GuessResult result;
+    private CodeFeedback feedback;
+    private int attempts;
+    private long timeTaken;
+    private boolean flagged;
+    
+    GameEvent() {
+    }
+    
+    void set(Type type, long gameId, GameLevel level, int guess, GuessResult result,
+             CodeFeedback feedback, int attempts, long timeTaken, boolean flagged) {
+        this.type = type;
+        this.gameId = gameId;
+        this.level = level;
+        this.guess = guess;
+        this.result = result;
+        this.feedback = feedback;
+        this.attempts = attempts;
+        this.timeTaken = timeTaken;
+        this.flagged = flagged;
+    }
+    
+    public Type getType() {
+        return type;
+    }
+    
+    /**
+     * Get the id of the game, unique per bus
+     * 
+     * @return Game id
+     */
+    public long getGameId() {
+        return gameId;
+    }
+    
+    public GameLevel getLevel() {
+        return level;
+    }
+    
+    /**
+     * Get the guess made; undefined for GAME_STARTED
+     * 
+     * @return The guess
+     */
+    public int getGuess() {
+        return guess;
+    }
+    
+    /**
+     * Get the feedback for the guess; null for GAME_STARTED and code-breaker
+     * games
+     * 
+     * @return Guess result
+     */
+    public GuessResult getResult() {
+        return result;
+    }
+    
+    /**
+     * Get the feedback for a code-breaker guess; null otherwise
+     * 
+     * @return Code feedback
+     */
+    public CodeFeedback getFeedback() {
+        return feedback;
+    }
+    
+    /**
+     * Get the attempts made so far, including this guess
+     * 
+     * @return Attempt count
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+    
+    /**
+     * Get the game duration; only set for WON and LOST
+     * 
+     * @return Time taken in seconds
+     */
+    public long getTimeTaken() {
+        return timeTaken;
+    }
+    
+    /**
+     * Check whether the bot detector has flagged the game
+     * 
+     * @return true if the game's score should be quarantined
+     */
+    public boolean isFlagged() {
+        return flagged;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("GameEvent[%s, game=%d, level=%s, guess=%d, result=%s, attempts=%d]",
+                             type, gameId, level == null ? null : level.name(), guess,
+                             feedback != null ? feedback : result, attempts);
+    }
+}
@@ -0,0 +1,309 @@
+package com.michaelsemera.digitdash;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded, batching pipeline from game engines to bookkeeping
+ * 
+ * Engines publish {@link GameEvent}s into a ring of preallocated slots;
+ * each subscribed handler runs on its own thread and reads the ring at its
+ * own pace. Publishing claims a sequence number with one atomic increment,
+ * fills the slot and marks it published, so the guess path pays for a single
+ * enqueue and allocates nothing. A handler is given every event that is ready
+ * in one batch, with the last flagged, so it can flush once per batch. When
+ * the slowest handler is a whole ring behind, publishers wait for it: that is
+ * the backpressure. Closing seals the claim counter, so every later publish
+ * fails, then lets the handlers finish every event claimed before the seal
+ * and only then stops them: an event is either refused or handled.
+ * 
+ * @author Michael Semera
+ */
+public final class GameEventBus implements AutoCloseable {
+    
+    public static final int DEFAULT_CAPACITY = 1024;
+    
+    private static final int SPIN_TRIES = 100;
+    private static final long MAX_IDLE_PARK_NANOS = 1_000_000L;
+    
+    // Added to the claim counter on close; claims at or beyond it are refused
+    private static final long SEALED = 1L << 62;
+    private static final long NOT_CLOSED = Long.MIN_VALUE;
+    
+    /**
+     * Receives events on a handler thread
+     */
+    @FunctionalInterface
+    public interface Handler {
+        
+        /**
+         * Handle one event. The event is only valid during the call.
+         * 
+         * @param event The event
+         * @param endOfBatch Whether this is the last event currently available
+         */
+        void onEvent(GameEvent event, boolean endOfBatch);
+    }
+    
+    private final GameEvent[] ring;
+    private final int mask;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed;
+    private final AtomicLong nextGameId;
+    private final List<Subscriber> subscribers;
+    private volatile long gatingCache;
+    private volatile long closedAt; // Last sequence claimed before the seal
+    private volatile boolean running;
+    
+    public GameEventBus() {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * Constructor for a bus of a given capacity
+     * 
+     * @param capacity Ring size, a power of two
+     */
+    public GameEventBus(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.ring = new GameEvent[capacity];
+        this.mask = capacity - 1;
+        this.published = new AtomicLongArray(capacity);
+        this.claimed = new AtomicLong(-1);
+        this.nextGameId = new AtomicLong();
+        this.subscribers = new CopyOnWriteArrayList<>();
+        this.gatingCache = -1;
+        this.closedAt = NOT_CLOSED;
+        this.running = true;
+        
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new GameEvent();
+            published.set(i, -1);
+        }
+    }
+    
+    /**
+     * Start a handler on its own thread; it receives events published from
+     * now on
+     * 
+     * @param name Handler name, used for its thread
+     * @param handler The handler
+     */
+    public void subscribe(String name, Handler handler) {
+        Subscriber subscriber = new Subscriber(name, handler, lastClaimed());
+        subscribers.add(subscriber);
+        subscriber.thread.start();
+    }
+    
+    /**
+     * Allocate an id for a new game
+     * 
+     * @return Game id
+     */
+    public long nextGameId() {
+        return nextGameId.incrementAndGet();
+    }
+    
+    /**
+     * Publish an event, waiting while the ring is full
+     * 
+     * @param type Event type
+     * @param gameId Game id
+     * @param level Difficulty level
+     * @param guess Guess made, or 0
+     * @param result Guess result, or null
+     * @param attempts Attempts made so far
+     * @param timeTaken Game duration in seconds, for WON and LOST
+     * @param flagged Whether the game is flagged as scripted
+     * @throws IllegalStateException If the bus has been closed
+     */
+    public void publish(GameEvent.Type type, long gameId, GameLevel level, int guess, GuessResult result,
+                        int attempts, long timeTaken, boolean flagged) {
+        publish(type, gameId, level, guess, result, null, attempts, timeTaken, flagged);
+    }
+    
+    /**
+     * Publish a code-breaker guess, waiting while the ring is full
+     * 
+     * @param type Event type
+     * @param gameId Game id
+     * @param level Code-breaker level
+     * @param guess Code guessed
+     * @param feedback Feedback for the guess
+     * @param attempts Attempts made so far
+     * @param timeTaken Game duration in seconds, for WON and LOST
+     * @throws IllegalStateException If the bus has been closed
+     */
+    public void publish(GameEvent.Type type, long gameId, GameLevel level, int guess, CodeFeedback feedback,
+                        int attempts, long timeTaken) {
+        publish(type, gameId, level, guess, null, feedback, attempts, timeTaken, false);
+    }
+    
+    private void publish(GameEvent.Type type, long gameId, GameLevel level, int guess, GuessResult result,
+                         CodeFeedback feedback, int attempts, long timeTaken, boolean flagged) {
+        long sequence = claimed.incrementAndGet();
+        if (sequence >= SEALED) {
+            throw new IllegalStateException("Game event bus is closed");
+        }
+        long wrapPoint = sequence - ring.length;
+        if (wrapPoint > gatingCache) {
+            awaitCapacity(wrapPoint);
+        }
+        
+        int index = (int) sequence & mask;
+        ring[index].set(type, gameId, level, guess, result, feedback, attempts, timeTaken, flagged);
+        published.lazySet(index, sequence);
+    }
+    
+    /**
+     * Wait until every handler has consumed the slot about to be reused.
+     * Slots claimed before the bus was sealed are drained by close, so this
+     * only gives up once the handlers have stopped.
+     */
+    private void awaitCapacity(long wrapPoint) {
+        long min;
+        while (wrapPoint > (min = minimumSequence())) {
+            if (!running) {
+                throw new IllegalStateException("Game event bus closed while waiting for capacity");
+            }
+            LockSupport.parkNanos(1_000L);
+        }
+        gatingCache = min;
+    }
+    
+    private long minimumSequence() {
+        long min = lastClaimed();
+        for (Subscriber subscriber : subscribers) {
+            min = Math.min(min, subscriber.sequence);
+        }
+        return min;
+    }
+    
+    /**
+     * Wait until every handler has processed every event published so far,
+     * after which their effects are visible to the caller
+     */
+    public void awaitIdle() {
+        long target = lastClaimed();
+        while (running && minimumSequence() < target) {
+            LockSupport.parkNanos(10_000L);
+        }
+    }
+    
+    /**
+     * Get how many events have been published
+     * 
+     * @return Published event count
+     */
+    public long getPublishedCount() {
+        return lastClaimed() + 1;
+    }
+    
+    /**
+     * Get the last sequence claimed by a publish that was accepted
+     */
+    private long lastClaimed() {
+        long sequence = claimed.get();
+        if (sequence < SEALED) {
+            return sequence;
+        }
+        long at;
+        while ((at = closedAt) == NOT_CLOSED) {
+            // close() has sealed the counter and is about to record where
+            Thread.onSpinWait();
+        }
+        return at;
+    }
+    
+    /**
+     * Refuse further events, wait until the handlers have processed every
+     * event accepted before, then stop them
+     */
+    @Override
+    public void close() {
+        long last;
+        do {
+            last = claimed.get();
+            if (last >= SEALED) {
+                return;
+            }
+        } while (!claimed.compareAndSet(last, last + SEALED));
+        closedAt = last;
+        
+        while (minimumSequence() < last) {
+            LockSupport.parkNanos(10_000L);
+        }
+        running = false;
+        for (Subscriber subscriber : subscribers) {
+            LockSupport.unpark(subscriber.thread);
+            try {
+                subscriber.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+    
+    /**
+     * A handler and the sequence of the last event it has processed
+     */
+    private final class Subscriber implements Runnable {
+        
+        private final Handler handler;
+        private final Thread thread;
+        private volatile long sequence;
+        
+        Subscriber(String name, Handler handler, long sequence) {
+            this.handler = handler;
+            this.sequence = sequence;
+            this.thread = new Thread(this, "game-events-" + name);
+            this.thread.setDaemon(true);
+        }
+        
+        @Override
+        public void run() {
+            int idle = 0;
+            while (running) {
+                long next = sequence + 1;
+                long available = next - 1;
+                while (published.get((int) (available + 1) & mask) == available + 1) {
+                    available++;
+                }
+                
+                if (available < next) {
+                    idle = idle(idle);
+                    continue;
+                }
+                idle = 0;
+                
+                for (long s = next; s <= available; s++) {
+                    try {
+                        handler.onEvent(ring[(int) s & mask], s == available);
+                    } catch (RuntimeException e) {
+                        System.err.println("Game event handler " + thread.getName() + " failed: " + e);
+                    }
+                }
+                sequence = available;
+            }
+        }
+        
+        /**
+         * Spin briefly, then park for longer and longer while idle
+         */
+        private int idle(int idle) {
+            if (idle < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                long park = Math.min(MAX_IDLE_PARK_NANOS, 1_000L << Math.min(20, idle - SPIN_TRIES));
+                LockSupport.parkNanos(park);
+            }
+            return idle + 1;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.michaelsemera.digitdash;
+
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Multi-client front door to {@link GameEngine}
+ * 
+ * Every guess passes the {@link AdmissionController} before it is queued,
+ * so a flooding client is throttled before it can occupy the workers or
+ * the bookkeeping behind them. Each session is pinned to one worker thread
+ * by its id, and each worker has its own queue, so a session's guesses are
+ * played in submission order and workers never contend on a shared queue.
+ * Engines are built with the shared {@link BotDetector} and
+ * {@link GameEventBus}; statistics are updated by a bus handler from the
+ * game's WON and LOST events, as for single-player games.
+ * 
+ * @author Michael Semera
+ */
+public class GuessGateway implements AutoCloseable {
+    
+    private final AdmissionController admission;
+    private final BotDetector botDetector;
+    private final GameEventBus eventBus;
+    private final ScoreManager scoreManager;
+    private final ConcurrentHashMap<String, Session> sessions;
+    private final ConcurrentHashMap<Long, PlayerStats> statsByGame;
+    private final Worker[] workers;
+    private volatile boolean running;
+    
+    /**
+     * Constructor that starts the worker threads and subscribes the
+     * statistics handler to the bus
+     * 
+     * @param admission Admission policy
+     * @param workerCount Number of worker threads
+     * @param botDetector Detector scoring every session's guesses, or null for none
+     * @param eventBus Bus every session's engine publishes to
+     */
+    public GuessGateway(AdmissionController admission, int workerCount, BotDetector botDetector,
+                        GameEventBus eventBus) {
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("Worker count must be positive: " + workerCount);
+        }
+        this.admission = admission;
+        this.botDetector = botDetector;
+        this.eventBus = Objects.requireNonNull(eventBus, "eventBus");
+        this.scoreManager = new ScoreManager();
+        this.sessions = new ConcurrentHashMap<>();
+        this.statsByGame = new ConcurrentHashMap<>();
+        this.workers = new Worker[workerCount];
+        this.running = true;
+        
+        eventBus.subscribe("gateway-stats", this::recordGameEvent);
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker("guess-worker-" + i);
+            workers[i].thread.start();
+        }
+    }
+    
+    /**
+     * Open a session and start its game. A session id stays taken until the
+     * session is closed; replacing a live session would strand its game's
+     * statistics and the guesses still queued for it.
+     * 
+     * @param sessionId Session id
+     * @param playerId Player owning the session
+     * @param difficulty Difficulty level
+     * @param playerStats Statistics to update when the game ends, or null
+     * @throws IllegalArgumentException If a session with this id is open
+     */
+    public void openSession(String sessionId, String playerId, GameLevel difficulty, PlayerStats playerStats) {
+        if (sessions.containsKey(sessionId)) {
+            throw new IllegalArgumentException("Session already open: " + sessionId);
+        }
+        GameEngine engine = new GameEngine(botDetector, eventBus);
+        engine.startNewGame(difficulty);
+        if (playerStats != null) {
+            statsByGame.put(engine.getGameId(), playerStats);
+        }
+        Worker worker = workers[Math.floorMod(sessionId.hashCode(), workers.length)];
+        
+        // Another thread may have opened the same id meanwhile
+        if (sessions.putIfAbsent(sessionId, new Session(playerId, difficulty, engine, worker)) != null) {
+            statsByGame.remove(engine.getGameId());
+            throw new IllegalArgumentException("Session already open: " + sessionId);
+        }
+    }
+    
+    /**
+     * Close a session and release its rate limit state. A game still in
+     * progress is abandoned without a result.
+     * 
+     * @param sessionId Session id
+     */
+    public void closeSession(String sessionId) {
+        Session session = sessions.remove(sessionId);
+        if (session != null) {
+            statsByGame.remove(session.engine.getGameId());
+            admission.closeSession(sessionId, session.playerId);
+        }
+    }
+    
+    /**
+     * Submit a guess
+     * 
+     * @param sessionId Session making the guess
+     * @param guess The guess
+     * @return Admission decision, with the pending result if accepted
+     */
+    public Submission submit(String sessionId, int guess) {
+        if (!running) {
+            throw new IllegalStateException("Gateway is closed");
+        }
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            throw new IllegalArgumentException("Unknown session: " + sessionId);
+        }
+        
+        AdmissionController.Decision decision = admission.admit(sessionId, session.playerId);
+        if (!decision.isAccepted()) {
+            return new Submission(decision, null);
+        }
+        
+        Request request = new Request(session, guess, admission.getClockNanos());
+        session.worker.queue.offer(request);
+        
+        // Lost a race with close(), which may already have drained the queue
+        if (!running && session.worker.queue.remove(request)) {
+            abandon(request);
+        }
+        return new Submission(decision, request.result);
+    }
+    
+    /**
+     * Update statistics from the event stream; runs on the bus handler
+     * thread. Scripted sessions keep their result out of statistics.
+     */
+    private void recordGameEvent(GameEvent event, boolean endOfBatch) {
+        GameEvent.Type type = event.getType();
+        if (type != GameEvent.Type.WON && type != GameEvent.Type.LOST) {
+            return;
+        }
+        PlayerStats playerStats = statsByGame.remove(event.getGameId());
+        if (playerStats == null) {
+            return;
+        }
+        
+        synchronized (playerStats) {
+            if (type == GameEvent.Type.LOST) {
+                playerStats.recordLoss(event.getLevel());
+                return;
+            }
+            int score = scoreManager.calculateScore(event.getLevel(), event.getAttempts(), event.getTimeTaken());
+            if (event.isFlagged()) {
+                playerStats.recordQuarantinedWin(score);
+            } else {
+                playerStats.recordWin(event.getLevel(), event.getAttempts(), event.getTimeTaken(), score);
+            }
+        }
+    }
+    
+    private void abandon(Request request) {
+        admission.onDequeued(request.enqueuedAt);
+        request.result.completeExceptionally(new IllegalStateException("Gateway closed"));
+    }
+    
+    public AdmissionController getAdmission() {
+        return admission;
+    }
+    
+    /**
+     * Stop the workers; guesses still queued are abandoned and their results
+     * completed exceptionally
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (Worker worker : workers) {
+            worker.thread.interrupt();
+        }
+        for (Worker worker : workers) {
+            try {
+                worker.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Request request;
+            while ((request = worker.queue.poll()) != null) {
+                abandon(request);
+            }
+        }
+    }
+    
+    /**
+     * A worker thread and the queue of the sessions pinned to it
+     */
+    private final class Worker implements Runnable {
+        
+        final BlockingQueue<Request> queue;
+        final Thread thread;
+        
+        Worker(String name) {
+            this.queue = new LinkedBlockingQueue<>();
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+        
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    Request request = queue.take();
+                    admission.onDequeued(request.enqueuedAt);
+                    
+                    try {
+                        request.result.complete(request.session.play(request.guess));
+                    } catch (RuntimeException e) {
+                        request.result.completeExceptionally(e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Closing; close() abandons whatever is still queued
+            }
+        }
+    }
+    
+    /**
+     * Outcome of a submission
+     */
+    public static final class Submission {
+        
+        private final AdmissionController.Decision decision;
+        private final CompletableFuture<GuessResult> result;
+        
+        private Submission(AdmissionController.Decision decision, CompletableFuture<GuessResult> result) {
+            this.decision = decision;
+            this.result = result;
+        }
+        
+        public AdmissionController.Decision getDecision() {
+            return decision;
+        }
+        
+        /**
+         * Get the pending guess result
+         * 
+         * @return Result future, or null if the guess was not admitted
+         */
+        public CompletableFuture<GuessResult> getResult() {
+            return result;
+        }
+    }
+    
+    /**
+     * A queued guess
+     */
+    private static final class Request {
+        
+        final Session session;
+        final int guess;
+        final long enqueuedAt;
+        final CompletableFuture<GuessResult> result;
+        
+        Request(Session session, int guess, long enqueuedAt) {
+            this.session = session;
+            this.guess = guess;
+            this.enqueuedAt = enqueuedAt;
+            this.result = new CompletableFuture<>();
+        }
+    }
+    
+    /**
+     * One client's game
+     */
+    private static final class Session {
+        
+        final String playerId;
+        final GameLevel difficulty;
+        final GameEngine engine;
+        final Worker worker;
+        boolean finished;
+        
+        Session(String playerId, GameLevel difficulty, GameEngine engine, Worker worker) {
+            this.playerId = playerId;
+            this.difficulty = difficulty;
+            this.engine = engine;
+            this.worker = worker;
+        }
+        
+        synchronized GuessResult play(int guess) {
+            if (finished) {
+                throw new IllegalStateException("Game is already over");
+            }
+            GuessResult result = engine.makeGuess(guess);
+            finished = result == GuessResult.CORRECT || engine.getAttemptCount() >= difficulty.getMaxAttempts();
+            return result;
+        }
+    }
+}
@@ -0,0 +1,860 @@
+package com.michaelsemera.digitdash;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Columnar, block-compressed storage for completed games
+ * 
+ * File layout: an 8 byte header, a sequence of blocks holding up to
+ * {@code blockSize} games each, a footer with min/max statistics for every
+ * block, and a 16 byte trailer pointing at the footer. Inside a block each
+ * column is stored separately: small integer columns (level kind and
+ * parameters, outcome, attempts, guess counts) are frame-of-reference
+ * bit-packed, while time, score and guesses are delta encoded as zigzag
+ * varints. The level parameter columns hold the range and attempt budget of
+ * adaptive and code-breaker games and are zero for the fixed difficulties,
+ * so they pack to nothing in blocks of fixed-difficulty games. Version 1
+ * files, written before those columns, are still read.
+ * 
+ * @author Michael Semera
+ */
+public final class GameHistoryStore {
+    
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+    
+    private static final int MAGIC = 0x48474444; // "DDGH"
+    private static final short VERSION = 2;
+    private static final short FIRST_LEVEL_VERSION = 2;
+    private static final int ADAPTIVE_CODE = 3;
+    private static final int CODE_BREAKER_CODE = 4;
+    private static final int HEADER_SIZE = 8;
+    private static final int TRAILER_SIZE = 16;
+    private static final int FOOTER_ENTRY_SIZE = 53;
+    
+    private GameHistoryStore() {
+    }
+    
+    /**
+     * Stable on-disk code for a difficulty, independent of the enum's
+     * declaration order; a new difficulty needs a new code here
+     * 
+     * @param difficulty Difficulty level
+     * @return Code stored in the difficulty column and block masks
+     */
+    static int codeOf(Difficulty difficulty) {
+        return switch (difficulty) {
+            case EASY -> 0;
+            case MEDIUM -> 1;
+            case HARD -> 2;
+        };
+    }
+    
+    /**
+     * Stable on-disk code for the kind of a level: the difficulty's own code
+     * for a fixed difficulty, or a code per calibrated level type
+     * 
+     * @param level Level played
+     * @return Code stored in the difficulty column and block masks
+     */
+    static int kindOf(GameLevel level) {
+        if (level instanceof Difficulty difficulty) {
+            return codeOf(difficulty);
+        } else if (level instanceof AdaptiveDifficulty) {
+            return ADAPTIVE_CODE;
+        } else if (level instanceof CodeBreakerLevel) {
+            return CODE_BREAKER_CODE;
+        }
+        throw new IllegalArgumentException("No history code for level " + level.name());
+    }
+    
+    /**
+     * Rebuild a level from its stored kind and parameters
+     * 
+     * @param code Code from {@link #kindOf}
+     * @param minRange Stored minimum of the range, unused for fixed difficulties
+     * @param maxRange Stored maximum of the range, unused for fixed difficulties
+     * @param maxAttempts Stored attempt budget, unused for fixed difficulties
+     * @return Level played
+     */
+    static GameLevel levelOf(int code, int minRange, int maxRange, int maxAttempts) {
+        return switch (code) {
+            case ADAPTIVE_CODE -> new AdaptiveDifficulty(minRange, maxRange, maxAttempts);
+            case CODE_BREAKER_CODE -> {
+                int digits = CodeBreakerLevel.MIN_DIGITS;
+                while (digits < CodeBreakerLevel.MAX_DIGITS && CodeBreaker.codeCount(digits) - 1 < maxRange) {
+                    digits++;
+                }
+                yield new CodeBreakerLevel(digits, maxAttempts);
+            }
+            default -> difficultyOf(code);
+        };
+    }
+    
+    /**
+     * Difficulty for a stored code
+     * 
+     * @param code Code from {@link #codeOf}
+     * @return Difficulty level
+     */
+    static Difficulty difficultyOf(int code) {
+        return switch (code) {
+            case 0 -> Difficulty.EASY;
+            case 1 -> Difficulty.MEDIUM;
+            case 2 -> Difficulty.HARD;
+            default -> throw new IllegalArgumentException("Unknown difficulty code: " + code);
+        };
+    }
+    
+    /**
+     * Create a writer, replacing any existing file
+     * 
+     * @param path File to write
+     * @return Open writer
+     * @throws IOException If the file cannot be created
+     */
+    public static Writer create(Path path) throws IOException {
+        return new Writer(path, DEFAULT_BLOCK_SIZE);
+    }
+    
+    /**
+     * Create a writer with a custom block size
+     * 
+     * @param path File to write
+     * @param blockSize Games per block
+     * @return Open writer
+     * @throws IOException If the file cannot be created
+     */
+    public static Writer create(Path path, int blockSize) throws IOException {
+        return new Writer(path, blockSize);
+    }
+    
+    /**
+     * Open a writer that adds games to an existing file, creating it if it
+     * does not exist. New blocks go where the footer was and the footer is
+     * written again on close, so the file must be closed to stay readable;
+     * games still in the last partial block are lost if the process dies.
+     * 
+     * @param path File to extend
+     * @return Open writer
+     * @throws IOException If the file is malformed or of an older version
+     */
+    public static Writer append(Path path) throws IOException {
+        if (!Files.exists(path) || Files.size(path) == 0) {
+            return new Writer(path, DEFAULT_BLOCK_SIZE);
+        }
+        
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            short version = readVersion(channel, path);
+            if (version != VERSION) {
+                throw new IOException("Cannot append to a version " + version + " history file: " + path);
+            }
+            return new Writer(channel, DEFAULT_BLOCK_SIZE, readBlocks(channel, path));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Open an existing history file for memory-mapped reads
+     * 
+     * @param path File to read
+     * @return Open reader
+     * @throws IOException If the file is missing or malformed
+     */
+    public static Reader open(Path path) throws IOException {
+        return new Reader(path);
+    }
+    
+    /**
+     * Appends games to a history file one block at a time
+     */
+    public static final class Writer implements Closeable {
+        
+        private final FileChannel channel;
+        private final int blockSize;
+        private final List<BlockStats> blocks;
+        
+        private final int[] difficulties;
+        private final int[] levelMins;
+        private final int[] levelMaxes;
+        private final int[] levelAttempts;
+        private final int[] outcomes;
+        private final int[] attempts;
+        private final long[] times;
+        private final int[] scores;
+        private final int[] guessCounts;
+        private int[] guesses;
+        private int guessTotal;
+        private int count;
+        
+        private ByteBuffer scratch;
+        private long position;
+        private boolean closed;
+        
+        private Writer(Path path, int blockSize) throws IOException {
+            this(FileChannel.open(path, StandardOpenOption.CREATE,
+                                  StandardOpenOption.TRUNCATE_EXISTING,
+                                  StandardOpenOption.WRITE),
+                 blockSize, null);
+        }
+        
+        /**
+         * Constructor continuing after existing blocks, or starting a new
+         * file if there are none
+         */
+        private Writer(FileChannel channel, int blockSize, List<BlockStats> existing) throws IOException {
+            if (blockSize <= 0) {
+                channel.close();
+                throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+            }
+            this.channel = channel;
+            this.blockSize = blockSize;
+            this.blocks = existing == null ? new ArrayList<>() : new ArrayList<>(existing);
+            this.difficulties = new int[blockSize];
+            this.levelMins = new int[blockSize];
+            this.levelMaxes = new int[blockSize];
+            this.levelAttempts = new int[blockSize];
+            this.outcomes = new int[blockSize];
+            this.attempts = new int[blockSize];
+            this.times = new long[blockSize];
+            this.scores = new int[blockSize];
+            this.guessCounts = new int[blockSize];
+            this.guesses = new int[blockSize * 4];
+            this.scratch = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+            
+            if (existing != null) {
+                // Overwrite the footer; it is written again on close
+                BlockStats last = existing.isEmpty() ? null : existing.get(existing.size() - 1);
+                this.position = last == null ? HEADER_SIZE : last.getOffset() + last.getLength();
+                return;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putShort(VERSION).putShort((short) 0).flip();
+            writeFully(header);
+        }
+        
+        /**
+         * Append a completed game
+         * 
+         * @param record The game
+         * @throws IOException If a full block cannot be written
+         */
+        public void append(GameRecord record) throws IOException {
+            ensureOpen();
+            int n = count;
+            GameLevel level = record.getLevel();
+            difficulties[n] = kindOf(level);
+            boolean fixed = level instanceof Difficulty;
+            levelMins[n] = fixed ? 0 : level.getMinRange();
+            levelMaxes[n] = fixed ? 0 : level.getMaxRange();
+            levelAttempts[n] = fixed ? 0 : level.getMaxAttempts();
+            outcomes[n] = record.isWon() ? 1 : 0;
+            attempts[n] = record.getAttempts();
+            times[n] = record.getTimeTaken();
+            scores[n] = record.getScore();
+            
+            int guessCount = record.getGuessCount();
+            guessCounts[n] = guessCount;
+            if (guessTotal + guessCount > guesses.length) {
+                guesses = Arrays.copyOf(guesses, Math.max(guesses.length * 2,
+                                                          guessTotal + guessCount));
+            }
+            for (int i = 0; i < guessCount; i++) {
+                guesses[guessTotal++] = record.getGuess(i);
+            }
+            
+            if (++count == blockSize) {
+                flushBlock();
+            }
+        }
+        
+        /**
+         * Get the number of blocks written so far
+         * 
+         * @return Completed blocks
+         */
+        public int getBlockCount() {
+            return blocks.size();
+        }
+        
+        private void flushBlock() throws IOException {
+            if (count == 0) return;
+            
+            int worstCase = 64 + count * 56 + guessTotal * 5;
+            if (scratch.capacity() < worstCase) {
+                scratch = ByteBuffer.allocate(worstCase).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            ByteBuffer out = scratch.clear();
+            
+            writePacked(out, difficulties, count);
+            writePacked(out, levelMins, count);
+            writePacked(out, levelMaxes, count);
+            writePacked(out, levelAttempts, count);
+            writePacked(out, outcomes, count);
+            writePacked(out, attempts, count);
+            writeDeltaLongs(out, times, count);
+            writeDeltaInts(out, scores, count);
+            writePacked(out, guessCounts, count);
+            writeGuesses(out, guesses, guessCounts, count);
+            out.flip();
+            
+            int length = out.remaining();
+            blocks.add(BlockStats.of(position, length, count, difficulties, outcomes,
+                                     attempts, times, scores));
+            writeFully(out);
+            
+            count = 0;
+            guessTotal = 0;
+        }
+        
+        private void writeFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+        
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException("History writer is closed");
+            }
+        }
+        
+        /**
+         * Flush the last partial block and write the footer
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            try {
+                flushBlock();
+                
+                long footerOffset = position;
+                ByteBuffer footer = ByteBuffer.allocate(blocks.size() * FOOTER_ENTRY_SIZE + TRAILER_SIZE)
+                                              .order(ByteOrder.LITTLE_ENDIAN);
+                for (BlockStats block : blocks) {
+                    block.writeTo(footer);
+                }
+                footer.putLong(footerOffset).putInt(blocks.size()).putInt(MAGIC).flip();
+                writeFully(footer);
+                channel.truncate(position);
+            } finally {
+                closed = true;
+                channel.close();
+            }
+        }
+    }
+    
+    /**
+     * Memory-mapped reader that skips blocks using their footer statistics
+     */
+    public static final class Reader implements Closeable {
+        
+        private final FileChannel channel;
+        private final short version;
+        private final List<BlockStats> blocks;
+        
+        private Reader(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                this.version = readVersion(channel, path);
+                this.blocks = Collections.unmodifiableList(readBlocks(channel, path));
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+        
+        /**
+         * Get statistics for every block, in file order
+         * 
+         * @return Block statistics
+         */
+        public List<BlockStats> getBlocks() {
+            return blocks;
+        }
+        
+        /**
+         * Get the total number of games in the file
+         * 
+         * @return Game count
+         */
+        public long getGameCount() {
+            long total = 0;
+            for (BlockStats block : blocks) {
+                total += block.getCount();
+            }
+            return total;
+        }
+        
+        /**
+         * Visit every game in blocks accepted by the filter; rejected blocks
+         * are never mapped or decoded
+         * 
+         * @param blockFilter Predicate over block statistics
+         * @param consumer Receives each decoded game
+         * @throws IOException If a block cannot be mapped
+         */
+        public void scan(Predicate<BlockStats> blockFilter, Consumer<GameRecord> consumer)
+                throws IOException {
+            BlockDecoder decoder = new BlockDecoder(version >= FIRST_LEVEL_VERSION);
+            for (BlockStats block : blocks) {
+                if (blockFilter.test(block)) {
+                    decoder.decode(map(channel, block.getOffset(), block.getLength()), block.getCount());
+                    decoder.emit(consumer);
+                }
+            }
+        }
+        
+        /**
+         * Visit every game in the file
+         * 
+         * @param consumer Receives each decoded game
+         * @throws IOException If a block cannot be mapped
+         */
+        public void scanAll(Consumer<GameRecord> consumer) throws IOException {
+            scan(block -> true, consumer);
+        }
+        
+        /**
+         * Replay the whole history into player statistics. Games count
+         * towards totals and bests only; see {@link PlayerStats#recordHistorical}.
+         * 
+         * @param stats Statistics to update
+         * @throws IOException If a block cannot be mapped
+         */
+        public void replayInto(PlayerStats stats) throws IOException {
+            scanAll(record -> record.applyTo(stats));
+        }
+        
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+    
+    /**
+     * Check the header of an open history file
+     * 
+     * @return The file's format version
+     */
+    private static short readVersion(FileChannel channel, Path path) throws IOException {
+        if (channel.size() < HEADER_SIZE + TRAILER_SIZE) {
+            throw new IOException("Not a DigitDash history file: " + path);
+        }
+        ByteBuffer header = map(channel, 0, HEADER_SIZE);
+        short version = header.getInt() == MAGIC ? header.getShort() : 0;
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported history file: " + path);
+        }
+        return version;
+    }
+    
+    /**
+     * Read the block statistics from the footer of an open history file
+     * 
+     * @return Statistics for every block, in file order
+     */
+    private static List<BlockStats> readBlocks(FileChannel channel, Path path) throws IOException {
+        long size = channel.size();
+        ByteBuffer trailer = map(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+        long footerOffset = trailer.getLong();
+        int blockCount = trailer.getInt();
+        if (trailer.getInt() != MAGIC
+                || footerOffset + (long) blockCount * FOOTER_ENTRY_SIZE != size - TRAILER_SIZE) {
+            throw new IOException("Corrupt history footer: " + path);
+        }
+        
+        ByteBuffer footer = map(channel, footerOffset, blockCount * FOOTER_ENTRY_SIZE);
+        List<BlockStats> list = new ArrayList<>(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            list.add(BlockStats.readFrom(footer));
+        }
+        return list;
+    }
+    
+    private static ByteBuffer map(FileChannel channel, long offset, int length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length)
+                      .order(ByteOrder.LITTLE_ENDIAN);
+    }
+    
+    /**
+     * Summary statistics kept in the footer for each block
+     */
+    public static final class BlockStats {
+        
+        private final long offset;
+        private final int length;
+        private final int count;
+        private final int wins;
+        private final int difficultyMask;
+        private final int minAttempts;
+        private final int maxAttempts;
+        private final long minTime;
+        private final long maxTime;
+        private final int minScore;
+        private final int maxScore;
+        
+        private BlockStats(long offset, int length, int count, int wins, int difficultyMask,
+                           int minAttempts, int maxAttempts, long minTime, long maxTime,
+                           int minScore, int maxScore) {
+            this.offset = offset;
+            this.length = length;
+            this.count = count;
+            this.wins = wins;
+            this.difficultyMask = difficultyMask;
+            this.minAttempts = minAttempts;
+            this.maxAttempts = maxAttempts;
+            this.minTime = minTime;
+            this.maxTime = maxTime;
+            this.minScore = minScore;
+            this.maxScore = maxScore;
+        }
+        
+        static BlockStats of(long offset, int length, int count, int[] difficulties,
+                             int[] outcomes, int[] attempts, long[] times, int[] scores) {
+            int wins = 0;
+            int mask = 0;
+            int minAttempts = Integer.MAX_VALUE, maxAttempts = Integer.MIN_VALUE;
+            long minTime = Long.MAX_VALUE, maxTime = Long.MIN_VALUE;
+            int minScore = Integer.MAX_VALUE, maxScore = Integer.MIN_VALUE;
+            
+            for (int i = 0; i < count; i++) {
+                wins += outcomes[i];
+                mask |= 1 << difficulties[i];
+                minAttempts = Math.min(minAttempts, attempts[i]);
+                maxAttempts = Math.max(maxAttempts, attempts[i]);
+                minTime = Math.min(minTime, times[i]);
+                maxTime = Math.max(maxTime, times[i]);
+                minScore = Math.min(minScore, scores[i]);
+                maxScore = Math.max(maxScore, scores[i]);
+            }
+            return new BlockStats(offset, length, count, wins, mask, minAttempts, maxAttempts,
+                                  minTime, maxTime, minScore, maxScore);
+        }
+        
+        void writeTo(ByteBuffer out) {
+            out.putLong(offset).putInt(length).putInt(count).putInt(wins)
+               .put((byte) difficultyMask)
+               .putInt(minAttempts).putInt(maxAttempts)
+               .putLong(minTime).putLong(maxTime)
+               .putInt(minScore).putInt(maxScore);
+        }
+        
+        static BlockStats readFrom(ByteBuffer in) {
+            return new BlockStats(in.getLong(), in.getInt(), in.getInt(), in.getInt(),
+                                  in.get() & 0xFF, in.getInt(), in.getInt(),
+                                  in.getLong(), in.getLong(), in.getInt(), in.getInt());
+        }
+        
+        /**
+         * Check whether the block may hold games of a difficulty
+         * 
+         * @param difficulty Difficulty level
+         * @return false if the block certainly has none
+         */
+        public boolean mayContain(Difficulty difficulty) {
+            return (difficultyMask & (1 << codeOf(difficulty))) != 0;
+        }
+        
+        /**
+         * Check whether the block may hold a score in the given range
+         * 
+         * @param min Minimum score (inclusive)
+         * @param max Maximum score (inclusive)
+         * @return false if every score lies outside the range
+         */
+        public boolean mayContainScore(int min, int max) {
+            return maxScore >= min && minScore <= max;
+        }
+        
+        public long getOffset() {
+            return offset;
+        }
+        
+        public int getLength() {
+            return length;
+        }
+        
+        public int getCount() {
+            return count;
+        }
+        
+        public int getWins() {
+            return wins;
+        }
+        
+        public int getLosses() {
+            return count - wins;
+        }
+        
+        public int getMinAttempts() {
+            return minAttempts;
+        }
+        
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+        
+        public long getMinTime() {
+            return minTime;
+        }
+        
+        public long getMaxTime() {
+            return maxTime;
+        }
+        
+        public int getMinScore() {
+            return minScore;
+        }
+        
+        public int getMaxScore() {
+            return maxScore;
+        }
+    }
+    
+    /**
+     * Reusable column buffers for decoding one block at a time
+     */
+    private static final class BlockDecoder {
+        
+        private final boolean hasLevels;
+        private int[] difficulties = new int[0];
+        private int[] levelMins = new int[0];
+        private int[] levelMaxes = new int[0];
+        private int[] levelAttempts = new int[0];
+        private int[] outcomes = new int[0];
+        private int[] attempts = new int[0];
+        private long[] times = new long[0];
+        private int[] scores = new int[0];
+        private int[] guessCounts = new int[0];
+        private int[] guesses = new int[0];
+        private int count;
+        private GameLevel lastLevel;
+        
+        BlockDecoder(boolean hasLevels) {
+            this.hasLevels = hasLevels;
+        }
+        
+        void decode(ByteBuffer in, int n) {
+            if (difficulties.length < n) {
+                difficulties = new int[n];
+                levelMins = new int[n];
+                levelMaxes = new int[n];
+                levelAttempts = new int[n];
+                outcomes = new int[n];
+                attempts = new int[n];
+                times = new long[n];
+                scores = new int[n];
+                guessCounts = new int[n];
+            }
+            count = n;
+            
+            readPacked(in, difficulties, n);
+            if (hasLevels) {
+                readPacked(in, levelMins, n);
+                readPacked(in, levelMaxes, n);
+                readPacked(in, levelAttempts, n);
+            }
+            readPacked(in, outcomes, n);
+            readPacked(in, attempts, n);
+            readDeltaLongs(in, times, n);
+            readDeltaInts(in, scores, n);
+            readPacked(in, guessCounts, n);
+            
+            int total = 0;
+            for (int i = 0; i < n; i++) {
+                total += guessCounts[i];
+            }
+            if (guesses.length < total) {
+                guesses = new int[total];
+            }
+            readGuesses(in, guesses, guessCounts, n);
+        }
+        
+        void emit(Consumer<GameRecord> consumer) {
+            int guessIndex = 0;
+            for (int i = 0; i < count; i++) {
+                int[] gameGuesses = Arrays.copyOfRange(guesses, guessIndex,
+                                                       guessIndex + guessCounts[i]);
+                guessIndex += guessCounts[i];
+                consumer.accept(GameRecord.adopting(level(i), attempts[i],
+                                                    times[i], scores[i], outcomes[i] == 1,
+                                                    gameGuesses));
+            }
+        }
+        
+        /**
+         * Level of a decoded game; consecutive games of one calibrated level
+         * share a single instance
+         */
+        private GameLevel level(int i) {
+            int code = difficulties[i];
+            if (code < ADAPTIVE_CODE) {
+                return difficultyOf(code);
+            }
+            GameLevel last = lastLevel;
+            if (last == null || kindOf(last) != code || last.getMinRange() != levelMins[i]
+                    || last.getMaxRange() != levelMaxes[i] || last.getMaxAttempts() != levelAttempts[i]) {
+                last = levelOf(code, levelMins[i], levelMaxes[i], levelAttempts[i]);
+                lastLevel = last;
+            }
+            return last;
+        }
+    }
+    
+    // ---------------------------------------------------------------
+    // Column codecs
+    // ---------------------------------------------------------------
+    
+    /**
+     * Frame-of-reference bit packing: base value, bit width, packed deltas
+     */
+    static void writePacked(ByteBuffer out, int[] values, int n) {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            min = Math.min(min, values[i]);
+            max = Math.max(max, values[i]);
+        }
+        int width = 32 - Integer.numberOfLeadingZeros(max - min);
+        out.putInt(min).put((byte) width);
+        if (width == 0) return;
+        
+        long buffer = 0;
+        int bits = 0;
+        for (int i = 0; i < n; i++) {
+            buffer |= ((long) (values[i] - min) & 0xFFFFFFFFL) << bits;
+            bits += width;
+            while (bits >= 8) {
+                out.put((byte) buffer);
+                buffer >>>= 8;
+                bits -= 8;
+            }
+        }
+        if (bits > 0) {
+            out.put((byte) buffer);
+        }
+    }
+    
+    static void readPacked(ByteBuffer in, int[] values, int n) {
+        int min = in.getInt();
+        int width = in.get();
+        if (width == 0) {
+            Arrays.fill(values, 0, n, min);
+            return;
+        }
+        
+        long mask = (1L << width) - 1;
+        long buffer = 0;
+        int bits = 0;
+        for (int i = 0; i < n; i++) {
+            while (bits < width) {
+                buffer |= (long) (in.get() & 0xFF) << bits;
+                bits += 8;
+            }
+            values[i] = (int) (buffer & mask) + min;
+            buffer >>>= width;
+            bits -= width;
+        }
+    }
+    
+    static void writeDeltaInts(ByteBuffer out, int[] values, int n) {
+        int previous = 0;
+        for (int i = 0; i < n; i++) {
+            writeVarLong(out, zigzag((long) values[i] - previous));
+            previous = values[i];
+        }
+    }
+    
+    static void readDeltaInts(ByteBuffer in, int[] values, int n) {
+        long previous = 0;
+        for (int i = 0; i < n; i++) {
+            previous += unzigzag(readVarLong(in));
+            values[i] = (int) previous;
+        }
+    }
+    
+    static void writeDeltaLongs(ByteBuffer out, long[] values, int n) {
+        long previous = 0;
+        for (int i = 0; i < n; i++) {
+            writeVarLong(out, zigzag(values[i] - previous));
+            previous = values[i];
+        }
+    }
+    
+    static void readDeltaLongs(ByteBuffer in, long[] values, int n) {
+        long previous = 0;
+        for (int i = 0; i < n; i++) {
+            previous += unzigzag(readVarLong(in));
+            values[i] = previous;
+        }
+    }
+    
+    /**
+     * Guesses are delta encoded within each game, restarting from zero
+     */
+    static void writeGuesses(ByteBuffer out, int[] guesses, int[] counts, int n) {
+        int index = 0;
+        for (int i = 0; i < n; i++) {
+            long previous = 0;
+            for (int j = 0; j < counts[i]; j++) {
+                writeVarLong(out, zigzag(guesses[index] - previous));
+                previous = guesses[index++];
+            }
+        }
+    }
+    
+    static void readGuesses(ByteBuffer in, int[] guesses, int[] counts, int n) {
+        int index = 0;
+        for (int i = 0; i < n; i++) {
+            long previous = 0;
+            for (int j = 0; j < counts[i]; j++) {
+                previous += unzigzag(readVarLong(in));
+                guesses[index++] = (int) previous;
+            }
+        }
+    }
+    
+    static void writeVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+    
+    static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+    
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+    
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
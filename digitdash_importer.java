@@ -0,0 +1,843 @@
+package com.michaelsemera.digitdash;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Bulk importer for historical game logs
+ * 
+ * Input is one game per line, {@code player,difficulty,outcome,attempts,seconds},
+ * where player is a numeric id, difficulty is EASY, MEDIUM or HARD and
+ * outcome is WON or LOST, for example {@code 1042,HARD,WON,7,45}. A header
+ * line starting with "player" is skipped and CRLF line endings are accepted.
+ * 
+ * The file is memory-mapped in segments that end on line boundaries. Each
+ * segment is parsed on its own thread straight from the mapped bytes, with
+ * no String per line or field, into a partial aggregate keyed by player id.
+ * Partials are merged in file order on the calling thread while the pool
+ * parses the segments behind them, so merging never leaves it idle. Wins
+ * are scored with {@link ScoreManager} as they are read. Rows that fail to
+ * parse or validate are counted by reason, and the first few are kept with
+ * their byte offsets for the report.
+ * 
+ * Given a checkpoint file, the merged totals and the offset they cover are
+ * saved every few waves of one segment per thread, and a later run with the
+ * same checkpoint resumes from there.
+ * 
+ * Usage: java -cp bin com.michaelsemera.digitdash.GameLogImporter FILE
+ *        [--threads N] [--segment-mb N] [--checkpoint FILE] [--checkpoint-every WAVES]
+ * 
+ * @author Michael Semera
+ */
+public final class GameLogImporter {
+    
+    public static final int DEFAULT_SEGMENT_BYTES = 64 << 20;
+    public static final long MAX_SECONDS = 86_400;
+    
+    private static final int CHECKPOINT_MAGIC = 0x44444C49; // "DDLI"
+    private static final short CHECKPOINT_VERSION = 1;
+    private static final int MAX_SAMPLES = 20;
+    private static final int MAX_SAMPLE_LENGTH = 120;
+    private static final int MAX_NUMBER_DIGITS = 18;
+    
+    private static final Difficulty[] DIFFICULTIES = Difficulty.values();
+    private static final byte[][] DIFFICULTY_NAMES = names(DIFFICULTIES);
+    private static final byte[][] OUTCOMES = {bytes("WON"), bytes("LOST")};
+    private static final byte[] HEADER = bytes("player");
+    
+    /**
+     * Reasons a row is rejected
+     */
+    public enum Rejection {
+        MALFORMED("malformed row"),
+        UNKNOWN_DIFFICULTY("unknown difficulty"),
+        UNKNOWN_OUTCOME("unknown outcome"),
+        OUT_OF_RANGE("attempts or time out of range");
+        
+        private final String description;
+        
+        Rejection(String description) {
+            this.description = description;
+        }
+        
+        public String getDescription() {
+            return description;
+        }
+    }
+    
+    private static final Rejection[] REJECTIONS = Rejection.values();
+    
+    private final int threads;
+    private final int segmentBytes;
+    private final ScoreManager scoreManager;
+    
+    /**
+     * Constructor for an importer
+     * 
+     * @param threads Segments parsed at once
+     * @param segmentBytes Target segment size; segments are extended to the
+     *                     end of their last line
+     */
+    public GameLogImporter(int threads, int segmentBytes) {
+        if (threads <= 0 || segmentBytes <= 0) {
+            throw new IllegalArgumentException(String.format(
+                "Invalid importer settings: %d threads, %d byte segments", threads, segmentBytes));
+        }
+        this.threads = threads;
+        this.segmentBytes = segmentBytes;
+        this.scoreManager = new ScoreManager();
+    }
+    
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+    
+    private static byte[][] names(Difficulty[] difficulties) {
+        byte[][] names = new byte[difficulties.length][];
+        for (int i = 0; i < difficulties.length; i++) {
+            names[i] = bytes(difficulties[i].name());
+        }
+        return names;
+    }
+    
+    /**
+     * Import a log file
+     * 
+     * @param input Log file
+     * @param checkpoint Checkpoint file to resume from and save to, or null
+     * @param checkpointEvery Waves of one segment per thread between checkpoints
+     * @throws IOException If the input cannot be read or the checkpoint is
+     *                     unreadable or belongs to another file
+     */
+    public Result importFile(Path input, Path checkpoint, int checkpointEvery) throws IOException {
+        if (checkpointEvery <= 0) {
+            throw new IllegalArgumentException("Waves between checkpoints must be positive: " + checkpointEvery);
+        }
+        long size = Files.size(input);
+        long modified = Files.getLastModifiedTime(input).toMillis();
+        
+        Result total = checkpoint != null && Files.exists(checkpoint)
+            ? Result.load(checkpoint, size, modified)
+            : new Result();
+        total.resumedFrom = total.offset;
+        
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            Deque<Future<Result>> inFlight = new ArrayDeque<>();
+            long from = total.offset;
+            long merged = 0;
+            
+            while (from < size || !inFlight.isEmpty()) {
+                // Keep a segment queued behind each busy thread, so the pool
+                // carries on parsing while the oldest part is merged
+                while (from < size && inFlight.size() < 2 * threads) {
+                    long to = lineEnd(channel, Math.min(size, from + segmentBytes), size);
+                    if (to - from > Integer.MAX_VALUE) {
+                        throw new IOException("Line too long near offset " + from);
+                    }
+                    MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+                    long base = from;
+                    long end = to;
+                    inFlight.add(pool.submit(() -> {
+                        Result part = new Parser(segment, base, scoreManager).parse();
+                        part.offset = end;
+                        return part;
+                    }));
+                    from = to;
+                }
+                
+                // Parts are merged in file order, so the offset always covers a whole prefix
+                Result part = join(inFlight.poll());
+                total.merge(part);
+                total.offset = part.offset;
+                merged++;
+                
+                if (checkpoint != null && (merged % ((long) threads * checkpointEvery) == 0 || total.offset == size)) {
+                    total.save(checkpoint, size, modified);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return total;
+    }
+    
+    private static Result join(Future<Result> part) throws IOException {
+        try {
+            return part.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Segment failed to import", e.getCause());
+        }
+    }
+    
+    /**
+     * Find the start of the line after a position
+     * 
+     * @return Offset just past the next newline at or after position, or size
+     */
+    private static long lineEnd(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer scan = ByteBuffer.allocate(8192);
+        long at = position;
+        while (at < size) {
+            scan.clear();
+            int read = channel.read(scan, at);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                if (scan.get(i) == '\n') return at + i + 1;
+            }
+            at += read;
+        }
+        return size;
+    }
+    
+    /**
+     * Parses one mapped segment into its own result
+     */
+    private static final class Parser {
+        
+        private static final int WINDOW_BYTES = 1 << 20;
+        
+        private final MappedByteBuffer buffer;
+        private final long base;
+        private final ScoreManager scoreManager;
+        private final Result result;
+        
+        // Mapped bytes are copied through a reused window in bulk, which is
+        // far cheaper than reading the mapping a byte at a time
+        private final byte[] window;
+        private int windowStart;
+        
+        // Current line: cursor, end, and start of the last field read
+        private int position;
+        private int end;
+        private int fieldStart;
+        private boolean more;
+        
+        Parser(MappedByteBuffer buffer, long base, ScoreManager scoreManager) {
+            this.buffer = buffer;
+            this.base = base;
+            this.scoreManager = scoreManager;
+            this.result = new Result();
+            this.window = new byte[WINDOW_BYTES];
+        }
+        
+        Result parse() {
+            int limit = buffer.limit();
+            int read = 0;
+            int carried = 0;
+            // Set while dropping the header or the rest of an overlong line
+            boolean skipping = false;
+            
+            while (read < limit) {
+                int count = Math.min(window.length - carried, limit - read);
+                buffer.get(read, window, carried, count);
+                windowStart = read - carried;
+                read += count;
+                int filled = carried + count;
+                
+                int start = 0;
+                if (windowStart == 0 && base == 0 && startsWith(HEADER, filled)) {
+                    skipping = true;
+                }
+                while (true) {
+                    int newline = indexOfNewline(start, filled);
+                    if (newline < 0) break;
+                    if (skipping) {
+                        skipping = false;
+                    } else {
+                        line(start, newline);
+                    }
+                    start = newline + 1;
+                }
+                
+                if (read == limit && start < filled && !skipping) {
+                    line(start, filled);
+                } else if (start == 0 && filled == window.length) {
+                    // No newline in a full window: reject the line and skip the rest
+                    if (!skipping) {
+                        reject(Rejection.MALFORMED, 0, filled);
+                    }
+                    skipping = true;
+                    start = filled;
+                }
+                carried = filled - start;
+                System.arraycopy(window, start, window, 0, carried);
+            }
+            return result;
+        }
+        
+        private int indexOfNewline(int from, int limit) {
+            for (int i = from; i < limit; i++) {
+                if (window[i] == '\n') return i;
+            }
+            return -1;
+        }
+        
+        private boolean startsWith(byte[] prefix, int limit) {
+            if (limit < prefix.length) return false;
+            for (int i = 0; i < prefix.length; i++) {
+                if (window[i] != prefix[i]) return false;
+            }
+            return true;
+        }
+        
+        private void line(int from, int to) {
+            if (to > from && window[to - 1] == '\r') {
+                to--;
+            }
+            if (to == from) return;
+            position = from;
+            end = to;
+            more = true;
+            
+            long player = number();
+            int difficulty = word(DIFFICULTY_NAMES);
+            int outcome = word(OUTCOMES);
+            long attempts = number();
+            long seconds = number();
+            
+            if (player < 0 || difficulty == -2 || outcome == -2 || attempts < 0 || seconds < 0 || more) {
+                reject(Rejection.MALFORMED, from, to);
+            } else if (difficulty < 0) {
+                reject(Rejection.UNKNOWN_DIFFICULTY, from, to);
+            } else if (outcome < 0) {
+                reject(Rejection.UNKNOWN_OUTCOME, from, to);
+            } else {
+                Difficulty level = DIFFICULTIES[difficulty];
+                if (attempts < 1 || attempts > level.getMaxAttempts() || seconds > MAX_SECONDS) {
+                    reject(Rejection.OUT_OF_RANGE, from, to);
+                } else if (outcome == 0) {
+                    int score = scoreManager.calculateScore(level, (int) attempts, seconds);
+                    result.totals.recordWin(player, difficulty, (int) attempts, seconds, score);
+                    result.rows++;
+                } else {
+                    result.totals.recordLoss(player, difficulty);
+                    result.rows++;
+                }
+            }
+        }
+        
+        /**
+         * Advance past the next field
+         * 
+         * @return End of the field, or -1 if the line has no more fields
+         */
+        private int field() {
+            if (!more) return -1;
+            int i = position;
+            while (i < end && window[i] != ',') {
+                i++;
+            }
+            fieldStart = position;
+            more = i < end;
+            position = i + 1;
+            return i;
+        }
+        
+        /**
+         * @return Non-negative decimal field, or -1 if missing or not a number
+         */
+        private long number() {
+            int stop = field();
+            if (stop <= fieldStart || stop - fieldStart > MAX_NUMBER_DIGITS) return -1;
+            long value = 0;
+            for (int i = fieldStart; i < stop; i++) {
+                int digit = window[i] - '0';
+                if (digit < 0 || digit > 9) return -1;
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+        
+        /**
+         * @return Index of the matching word, -1 if none matches, or -2 if
+         *         the field is missing
+         */
+        private int word(byte[][] words) {
+            int stop = field();
+            if (stop < 0) return -2;
+            int length = stop - fieldStart;
+            for (int w = 0; w < words.length; w++) {
+                byte[] candidate = words[w];
+                if (candidate.length != length) continue;
+                int i = 0;
+                while (i < length && window[fieldStart + i] == candidate[i]) {
+                    i++;
+                }
+                if (i == length) return w;
+            }
+            return -1;
+        }
+        
+        private void reject(Rejection reason, int from, int to) {
+            result.rejected[reason.ordinal()]++;
+            if (result.samples.size() < MAX_SAMPLES) {
+                String text = new String(window, from, Math.min(to - from, MAX_SAMPLE_LENGTH),
+                                         StandardCharsets.UTF_8);
+                result.samples.add(new RejectedRow(base + windowStart + from, reason, text));
+            }
+        }
+    }
+    
+    /**
+     * A rejected row kept for the report
+     */
+    public static final class RejectedRow {
+        
+        private final long offset;
+        private final Rejection reason;
+        private final String text;
+        
+        RejectedRow(long offset, Rejection reason, String text) {
+            this.offset = offset;
+            this.reason = reason;
+            this.text = text;
+        }
+        
+        public long getOffset() {
+            return offset;
+        }
+        
+        public Rejection getReason() {
+            return reason;
+        }
+        
+        public String getText() {
+            return text;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("RejectedRow[offset=%d, reason=%s, text=%s]", offset, reason, text);
+        }
+    }
+    
+    /**
+     * Imported totals, rejection counts and the input offset they cover
+     */
+    public static final class Result {
+        
+        private final Totals totals;
+        private final long[] rejected;
+        private final List<RejectedRow> samples;
+        private long rows;
+        private long offset;
+        private long resumedFrom;
+        
+        Result() {
+            this.totals = new Totals(1 << 10);
+            this.rejected = new long[REJECTIONS.length];
+            this.samples = new ArrayList<>();
+        }
+        
+        private Result(Totals totals) {
+            this.totals = totals;
+            this.rejected = new long[REJECTIONS.length];
+            this.samples = new ArrayList<>();
+        }
+        
+        void merge(Result other) {
+            totals.merge(other.totals);
+            rows += other.rows;
+            for (int r = 0; r < rejected.length; r++) {
+                rejected[r] += other.rejected[r];
+            }
+            if (samples.size() < MAX_SAMPLES) {
+                samples.addAll(other.samples);
+                samples.sort(Comparator.comparingLong(RejectedRow::getOffset));
+                if (samples.size() > MAX_SAMPLES) {
+                    samples.subList(MAX_SAMPLES, samples.size()).clear();
+                }
+            }
+        }
+        
+        /**
+         * Build player statistics from the imported totals. PlayerStats
+         * counts in ints, so a total too large for one is held at
+         * Integer.MAX_VALUE rather than failing the whole conversion.
+         * 
+         * @return Statistics by player id
+         */
+        public Map<Long, PlayerStats> toPlayerStats() {
+            Map<Long, PlayerStats> players = new HashMap<>(totals.size() * 2);
+            totals.forEach((player, row, values) -> {
+                PlayerStats stats = new PlayerStats();
+                for (int d = 0; d < DIFFICULTIES.length; d++) {
+                    int at = row + d * Totals.SLOTS;
+                    if (values[at + Totals.WINS] == 0 && values[at + Totals.LOSSES] == 0) continue;
+                    stats.addImported(DIFFICULTIES[d],
+                                      saturate(values[at + Totals.WINS]),
+                                      saturate(values[at + Totals.LOSSES]),
+                                      saturate(values[at + Totals.SCORE]),
+                                      saturate(values[at + Totals.ATTEMPTS]),
+                                      values[at + Totals.TIME],
+                                      saturate(values[at + Totals.BEST]));
+                }
+                players.put(player, stats);
+            });
+            return players;
+        }
+        
+        private static int saturate(long value) {
+            return (int) Math.min(Integer.MAX_VALUE, value);
+        }
+        
+        public int getPlayerCount() {
+            return totals.size();
+        }
+        
+        public long getImportedRows() {
+            return rows;
+        }
+        
+        public long getRejectedRows() {
+            long total = 0;
+            for (long count : rejected) {
+                total += count;
+            }
+            return total;
+        }
+        
+        public long getRejected(Rejection reason) {
+            return rejected[reason.ordinal()];
+        }
+        
+        /**
+         * Get the first rejected rows by offset. Rows rejected before a
+         * resumed checkpoint are counted but not listed.
+         * 
+         * @return Rejected rows
+         */
+        public List<RejectedRow> getSamples() {
+            return Collections.unmodifiableList(samples);
+        }
+        
+        /**
+         * Get the input offset imported up to
+         * 
+         * @return Bytes of input covered
+         */
+        public long getOffset() {
+            return offset;
+        }
+        
+        /**
+         * Get the offset this run resumed from
+         * 
+         * @return Checkpointed offset, or 0 for a fresh import
+         */
+        public long getResumedFrom() {
+            return resumedFrom;
+        }
+        
+        /**
+         * Get totals over every player for one difficulty
+         * 
+         * @param difficulty Difficulty level
+         * @return Wins, losses and score, in that order
+         */
+        public long[] getTotals(Difficulty difficulty) {
+            long[] sums = new long[3];
+            int d = difficulty.ordinal() * Totals.SLOTS;
+            totals.forEach((player, row, values) -> {
+                sums[0] += values[row + d + Totals.WINS];
+                sums[1] += values[row + d + Totals.LOSSES];
+                sums[2] += values[row + d + Totals.SCORE];
+            });
+            return sums;
+        }
+        
+        /**
+         * Write a checkpoint: the input's size and modification time, the
+         * offset covered, counts and every player's totals. Written to a
+         * temporary file and moved into place, so a crash leaves the previous
+         * checkpoint intact.
+         */
+        void save(Path checkpoint, long inputSize, long inputModified) throws IOException {
+            Path temp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temp), 1 << 16))) {
+                out.writeInt(CHECKPOINT_MAGIC);
+                out.writeShort(CHECKPOINT_VERSION);
+                out.writeLong(inputSize);
+                out.writeLong(inputModified);
+                out.writeLong(offset);
+                out.writeLong(rows);
+                for (long count : rejected) {
+                    out.writeLong(count);
+                }
+                totals.write(out);
+            }
+            Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        
+        static Result load(Path checkpoint, long inputSize, long inputModified) throws IOException {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Files.newInputStream(checkpoint), 1 << 16))) {
+                if (in.readInt() != CHECKPOINT_MAGIC || in.readShort() != CHECKPOINT_VERSION) {
+                    throw new IOException("Not an import checkpoint: " + checkpoint);
+                }
+                if (in.readLong() != inputSize || in.readLong() != inputModified) {
+                    throw new IOException("Checkpoint was written for a different input file: " + checkpoint);
+                }
+                long offset = in.readLong();
+                long rows = in.readLong();
+                long[] rejected = new long[REJECTIONS.length];
+                for (int r = 0; r < rejected.length; r++) {
+                    rejected[r] = in.readLong();
+                }
+                
+                Result result = new Result(Totals.read(in));
+                result.offset = offset;
+                result.rows = rows;
+                System.arraycopy(rejected, 0, result.rejected, 0, rejected.length);
+                return result;
+            }
+        }
+    }
+    
+    /**
+     * Per-player, per-difficulty totals in one flat long array, indexed
+     * through an open-addressing table of player ids
+     */
+    static final class Totals {
+        
+        static final int WINS = 0;
+        static final int LOSSES = 1;
+        static final int SCORE = 2;
+        static final int ATTEMPTS = 3;
+        static final int TIME = 4;
+        static final int BEST = 5;
+        static final int SLOTS = 6;
+        static final int ROW = SLOTS * DIFFICULTIES.length;
+        
+        /**
+         * Visitor over players; values[row..row + ROW) are the player's totals
+         */
+        interface Visitor {
+            void visit(long player, int row, long[] values);
+        }
+        
+        // Pairs of player id and row number + 1, 0 for an empty slot; a
+        // probe reads both from one cache line
+        private long[] table;
+        private long[] players;
+        private long[] values;
+        private int size;
+        
+        Totals(int capacity) {
+            int tableSize = Integer.highestOneBit(Math.max(16, capacity * 2 - 1)) << 1;
+            this.table = new long[tableSize * 2];
+            this.players = new long[Math.max(16, capacity)];
+            this.values = new long[players.length * ROW];
+        }
+        
+        /**
+         * Fibonacci hashing: the top bits of the product spread consecutive
+         * ids evenly over the table
+         */
+        private static int slot(long player, int shift) {
+            return (int) (player * 0x9E3779B97F4A7C15L >>> shift);
+        }
+        
+        private int shift() {
+            return Long.numberOfLeadingZeros(table.length >>> 1) + 1;
+        }
+        
+        /**
+         * Find or add a player's row
+         * 
+         * @return Offset of the player's totals in values
+         */
+        private int row(long player) {
+            int mask = (table.length >>> 1) - 1;
+            int i = slot(player, shift());
+            while (true) {
+                long entry = table[2 * i + 1];
+                if (entry == 0) break;
+                if (table[2 * i] == player) return (int) (entry - 1) * ROW;
+                i = (i + 1) & mask;
+            }
+            
+            if (size == players.length) {
+                players = Arrays.copyOf(players, size * 2);
+                values = Arrays.copyOf(values, size * 2 * ROW);
+            }
+            int row = size++;
+            players[row] = player;
+            int at = row * ROW;
+            for (int d = 0; d < DIFFICULTIES.length; d++) {
+                values[at + d * SLOTS + BEST] = Long.MAX_VALUE;
+            }
+            
+            if (size > table.length >>> 2) {
+                rehash(table.length);
+            } else {
+                table[2 * i] = player;
+                table[2 * i + 1] = row + 1;
+            }
+            return at;
+        }
+        
+        private void rehash(int tableSize) {
+            table = new long[tableSize * 2];
+            int mask = tableSize - 1;
+            int shift = shift();
+            for (int row = 0; row < size; row++) {
+                int i = slot(players[row], shift);
+                while (table[2 * i + 1] != 0) {
+                    i = (i + 1) & mask;
+                }
+                table[2 * i] = players[row];
+                table[2 * i + 1] = row + 1;
+            }
+        }
+        
+        void recordWin(long player, int difficulty, int attempts, long seconds, int score) {
+            int at = row(player) + difficulty * SLOTS;
+            values[at + WINS]++;
+            values[at + SCORE] += score;
+            values[at + ATTEMPTS] += attempts;
+            values[at + TIME] += seconds;
+            values[at + BEST] = Math.min(values[at + BEST], attempts);
+        }
+        
+        void recordLoss(long player, int difficulty) {
+            int at = row(player) + difficulty * SLOTS;
+            values[at + LOSSES]++;
+        }
+        
+        void merge(Totals other) {
+            for (int r = 0; r < other.size; r++) {
+                int mine = row(other.players[r]);
+                int theirs = r * ROW;
+                for (int s = 0; s < ROW; s++) {
+                    if (s % SLOTS == BEST) {
+                        values[mine + s] = Math.min(values[mine + s], other.values[theirs + s]);
+                    } else {
+                        values[mine + s] += other.values[theirs + s];
+                    }
+                }
+            }
+        }
+        
+        void forEach(Visitor visitor) {
+            for (int r = 0; r < size; r++) {
+                visitor.visit(players[r], r * ROW, values);
+            }
+        }
+        
+        int size() {
+            return size;
+        }
+        
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(size);
+            for (int r = 0; r < size; r++) {
+                out.writeLong(players[r]);
+                for (int s = 0; s < ROW; s++) {
+                    out.writeLong(values[r * ROW + s]);
+                }
+            }
+        }
+        
+        static Totals read(DataInputStream in) throws IOException {
+            int count = in.readInt();
+            if (count < 0) {
+                throw new IOException("Corrupt checkpoint: " + count + " players");
+            }
+            Totals totals = new Totals(count);
+            for (int r = 0; r < count; r++) {
+                int at = totals.row(in.readLong());
+                for (int s = 0; s < ROW; s++) {
+                    totals.values[at + s] = in.readLong();
+                }
+            }
+            return totals;
+        }
+    }
+    
+    /**
+     * Main entry point
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("Usage: GameLogImporter FILE [--threads N] [--segment-mb N] "
+                                               + "[--checkpoint FILE] [--checkpoint-every WAVES]");
+        }
+        Path input = Paths.get(args[0]);
+        int threads = Runtime.getRuntime().availableProcessors();
+        int segmentBytes = DEFAULT_SEGMENT_BYTES;
+        Path checkpoint = null;
+        int checkpointEvery = 4;
+        
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--segment-mb" -> segmentBytes = Math.multiplyExact(Integer.parseInt(args[++i]), 1 << 20);
+                case "--checkpoint" -> checkpoint = Paths.get(args[++i]);
+                case "--checkpoint-every" -> checkpointEvery = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        
+        long start = System.nanoTime();
+        Result result = new GameLogImporter(threads, segmentBytes).importFile(input, checkpoint, checkpointEvery);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double megabytes = (result.getOffset() - result.getResumedFrom()) / (double) (1 << 20);
+        
+        System.out.printf("Imported %,d rows for %,d players from %s%n",
+                          result.getImportedRows(), result.getPlayerCount(), input);
+        if (result.getResumedFrom() > 0) {
+            System.out.printf("Resumed from checkpoint at byte %,d%n", result.getResumedFrom());
+        }
+        System.out.printf("Read %,.1f MB in %.2f s (%,.1f MB/s, %d threads)%n",
+                          megabytes, seconds, megabytes / seconds, threads);
+        
+        System.out.println("─────────────────────────────────────────────────────────────");
+        for (Difficulty difficulty : DIFFICULTIES) {
+            long[] totals = result.getTotals(difficulty);
+            System.out.printf("  %-8s %,12d wins %,12d losses %,16d points%n",
+                              difficulty.name(), totals[0], totals[1], totals[2]);
+        }
+        
+        System.out.printf("%nRejected %,d rows%n", result.getRejectedRows());
+        for (Rejection reason : REJECTIONS) {
+            if (result.getRejected(reason) > 0) {
+                System.out.printf("  %-32s %,d%n", reason.getDescription(), result.getRejected(reason));
+            }
+        }
+        for (RejectedRow row : result.getSamples()) {
+            System.out.printf("  at byte %,d (%s): %s%n", row.getOffset(), row.getReason().getDescription(),
+                              row.getText());
+        }
+    }
+}
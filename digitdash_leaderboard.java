@@ -0,0 +1,254 @@
+package com.michaelsemera.digitdash;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Leaderboard for a single day of the daily challenge, scored with the
+ * regular {@link ScoreManager} rules
+ * 
+ * Only a player's first result on each round counts. Once a round has been
+ * played its target is known, so any later win on it is a replay and earns
+ * nothing.
+ * 
+ * @author Michael Semera
+ */
+public class DailyLeaderboard {
+    
+    private final LocalDate date;
+    private final int roundsPerDay;
+    private final ScoreManager scoreManager;
+    private final Map<String, Entry> entries;
+    
+    /**
+     * Constructor for a day's leaderboard with the default number of rounds
+     * 
+     * @param date Challenge date
+     * @param scoreManager Scoring rules
+     */
+    public DailyLeaderboard(LocalDate date, ScoreManager scoreManager) {
+        this(date, DailyChallenge.DEFAULT_ROUNDS_PER_DAY, scoreManager);
+    }
+    
+    /**
+     * Constructor for a day's leaderboard
+     * 
+     * @param date Challenge date
+     * @param roundsPerDay Rounds in the day's schedule
+     * @param scoreManager Scoring rules
+     */
+    public DailyLeaderboard(LocalDate date, int roundsPerDay, ScoreManager scoreManager) {
+        if (roundsPerDay <= 0) {
+            throw new IllegalArgumentException("Rounds per day must be positive: " + roundsPerDay);
+        }
+        this.date = date;
+        this.roundsPerDay = roundsPerDay;
+        this.scoreManager = scoreManager;
+        this.entries = new ConcurrentHashMap<>();
+    }
+    
+    /**
+     * Record a won round
+     * 
+     * @param player Player name
+     * @param difficulty Difficulty level
+     * @param round Round number, starting at 0
+     * @param attempts Attempts taken
+     * @param timeTaken Time taken in seconds
+     * @return Score awarded, or 0 if the player already has a result for the round
+     */
+    public int recordWin(String player, Difficulty difficulty, int round, int attempts, long timeTaken) {
+        checkRound(round);
+        int score = scoreManager.calculateScore(difficulty, attempts, timeTaken);
+        return entry(player).addWin(difficulty, round, score) ? score : 0;
+    }
+    
+    /**
+     * Record a lost round
+     * 
+     * @param player Player name
+     * @param difficulty Difficulty level
+     * @param round Round number, starting at 0
+     * @return true if recorded, false if the player already has a result for the round
+     */
+    public boolean recordLoss(String player, Difficulty difficulty, int round) {
+        checkRound(round);
+        return entry(player).addLoss(difficulty, round);
+    }
+    
+    /**
+     * Record a round from a session flagged as scripted; it is kept off the
+     * rankings but still uses up the round
+     * 
+     * @param player Player name
+     * @param difficulty Difficulty level
+     * @param round Round number, starting at 0
+     * @return true if recorded, false if the player already has a result for the round
+     */
+    public boolean recordQuarantined(String player, Difficulty difficulty, int round) {
+        checkRound(round);
+        return entry(player).addQuarantined(difficulty, round);
+    }
+    
+    /**
+     * Check whether a player already has a result for a round
+     * 
+     * @param player Player name
+     * @param difficulty Difficulty level
+     * @param round Round number, starting at 0
+     * @return true if the round has been played
+     */
+    public boolean hasPlayed(String player, Difficulty difficulty, int round) {
+        checkRound(round);
+        Entry entry = entries.get(player);
+        return entry != null && entry.hasPlayed(difficulty, round);
+    }
+    
+    /**
+     * Reject rounds outside the day's schedule, which also bounds the
+     * per-player round sets
+     */
+    private void checkRound(int round) {
+        if (round < 0 || round >= roundsPerDay) {
+            throw new IllegalArgumentException("Round must be between 0 and " + (roundsPerDay - 1) + ": " + round);
+        }
+    }
+    
+    private Entry entry(String player) {
+        return entries.computeIfAbsent(player, name -> new Entry(name, roundsPerDay));
+    }
+    
+    /**
+     * Get the highest scoring players
+     * 
+     * @param limit Maximum number of entries
+     * @return Entries ordered by total score, best first
+     */
+    public List<Entry> getTop(int limit) {
+        List<Entry> ranked = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.getRounds() > 0) {
+                ranked.add(entry.snapshot());
+            }
+        }
+        ranked.sort(Comparator.comparingLong(Entry::getTotalScore).reversed()
+                              .thenComparing(Entry::getPlayer));
+        return ranked.size() > limit ? new ArrayList<>(ranked.subList(0, limit)) : ranked;
+    }
+    
+    public LocalDate getDate() {
+        return date;
+    }
+    
+    public int getRoundsPerDay() {
+        return roundsPerDay;
+    }
+    
+    /**
+     * One player's results for the day
+     */
+    public static final class Entry {
+        
+        private final String player;
+        private final int roundsPerDay;
+        private final Map<Difficulty, BitSet> played;
+        private long totalScore;
+        private int wins;
+        private int losses;
+        private int quarantined;
+        
+        private Entry(String player, int roundsPerDay) {
+            this.player = player;
+            this.roundsPerDay = roundsPerDay;
+            this.played = new EnumMap<>(Difficulty.class);
+        }
+        
+        synchronized boolean addWin(Difficulty difficulty, int round, int score) {
+            if (!claim(difficulty, round)) {
+                return false;
+            }
+            totalScore += score;
+            wins++;
+            return true;
+        }
+        
+        synchronized boolean addLoss(Difficulty difficulty, int round) {
+            if (!claim(difficulty, round)) {
+                return false;
+            }
+            losses++;
+            return true;
+        }
+        
+        synchronized boolean addQuarantined(Difficulty difficulty, int round) {
+            if (!claim(difficulty, round)) {
+                return false;
+            }
+            quarantined++;
+            return true;
+        }
+        
+        synchronized boolean hasPlayed(Difficulty difficulty, int round) {
+            BitSet rounds = played.get(difficulty);
+            return rounds != null && rounds.get(round);
+        }
+        
+        /**
+         * Mark a round as played
+         * 
+         * @return false if it already was
+         */
+        private boolean claim(Difficulty difficulty, int round) {
+            BitSet rounds = played.computeIfAbsent(difficulty, d -> new BitSet(roundsPerDay));
+            if (rounds.get(round)) {
+                return false;
+            }
+            rounds.set(round);
+            return true;
+        }
+        
+        synchronized Entry snapshot() {
+            Entry copy = new Entry(player, roundsPerDay);
+            copy.totalScore = totalScore;
+            copy.wins = wins;
+            copy.losses = losses;
+            copy.quarantined = quarantined;
+            return copy;
+        }
+        
+        public String getPlayer() {
+            return player;
+        }
+        
+        public synchronized long getTotalScore() {
+            return totalScore;
+        }
+        
+        public synchronized int getWins() {
+            return wins;
+        }
+        
+        public synchronized int getLosses() {
+            return losses;
+        }
+        
+        public synchronized int getQuarantined() {
+            return quarantined;
+        }
+        
+        /**
+         * Get the number of ranked rounds played
+         * 
+         * @return Wins plus losses
+         */
+        public synchronized int getRounds() {
+            return wins + losses;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.michaelsemera.digitdash;
+
+/**
+ * Parameters of a playable level, fixed or calibrated per player
+ * 
+ * @author Michael Semera
+ */
+public interface GameLevel {
+    
+    /**
+     * Get the level name shown to the player
+     * 
+     * @return Level name
+     */
+    String name();
+    
+    int getMinRange();
+    
+    int getMaxRange();
+    
+    int getMaxAttempts();
+    
+    double getScoreMultiplier();
+    
+    /**
+     * Get the fixed difficulty closest to this level, used for presentation
+     * and for coarse per-difficulty aggregates
+     * 
+     * @return Closest fixed difficulty
+     */
+    Difficulty getBaseDifficulty();
+    
+    /**
+     * Get the category best and average attempts are kept under. Only levels
+     * played to the same rules share a category, so calibrated games never
+     * mix with fixed-difficulty records.
+     * 
+     * @return Statistics category
+     */
+    default String getStatsCategory() {
+        return name();
+    }
+    
+    /**
+     * Get the range size
+     * 
+     * @return Size of the number range
+     */
+    default int getRangeSize() {
+        return getMaxRange() - getMinRange() + 1;
+    }
+    
+    /**
+     * Get how demanding the level is: bits of information the player must
+     * extract per attempt to be sure of finding the number
+     * 
+     * @return Required bits per attempt
+     */
+    default double getHardness() {
+        return hardness(getRangeSize(), getMaxAttempts());
+    }
+    
+    /**
+     * Hardness of an arbitrary range and attempt budget
+     * 
+     * @param rangeSize Size of the number range
+     * @param maxAttempts Maximum allowed attempts
+     * @return Required bits per attempt
+     */
+    static double hardness(int rangeSize, int maxAttempts) {
+        return Math.log(rangeSize) / Math.log(2) / maxAttempts;
+    }
+}
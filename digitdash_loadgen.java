@@ -0,0 +1,414 @@
+package com.michaelsemera.digitdash;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Open-loop load generator for capacity planning
+ * 
+ * Synthetic players arrive at a fixed average rate, independent of how
+ * fast earlier ones are served, and each plays games through its own
+ * {@link GameEngine}. All engines share a {@link BotDetector} and a
+ * {@link GameEventBus} whose handler feeds {@link RollingStats}, and
+ * players read those rolling stats after every game, so the run exercises
+ * the shared structures as a busy server would. Players follow one of a few
+ * strategy profiles, each with a log-normal think time between operations.
+ * Every choice a player makes, down to its targets and think times, comes
+ * from a random source split off the seed, so a seed replays the same work.
+ * 
+ * Latency is measured from when an operation was meant to start, not from
+ * when a worker got round to it. If the workers fall behind, the time an
+ * operation spent waiting is part of its latency, so stalls are not hidden
+ * by coordinated omission. Service time, from actual start, is reported
+ * alongside for comparison.
+ * 
+ * Usage: java -cp bin com.michaelsemera.digitdash.LoadGenerator
+ *        [--rate PLAYERS_PER_SECOND] [--seconds N] [--threads N]
+ *        [--think-scale FACTOR] [--replay PROBABILITY] [--seed N]
+ * 
+ * @author Michael Semera
+ */
+public class LoadGenerator {
+    
+    /**
+     * Operations timed by the generator
+     */
+    enum Operation {
+        START_GAME("start game"),
+        GUESS("guess"),
+        STATS_READ("stats read");
+        
+        private final String label;
+        
+        Operation(String label) {
+            this.label = label;
+        }
+        
+        public String getLabel() {
+            return label;
+        }
+    }
+    
+    /**
+     * Player strategy: how guesses are chosen and how long the player
+     * thinks before each operation
+     */
+    enum Profile {
+        METHODICAL(50, 1_500, true),
+        CASUAL(35, 3_000, false),
+        SPEEDY(15, 400, true);
+        
+        private final int weight;
+        private final long medianThinkMillis;
+        private final boolean bisects;
+        
+        Profile(int weight, long medianThinkMillis, boolean bisects) {
+            this.weight = weight;
+            this.medianThinkMillis = medianThinkMillis;
+            this.bisects = bisects;
+        }
+        
+        /**
+         * Pick a profile by weight
+         */
+        static Profile pick(SplittableRandom random) {
+            int total = 0;
+            for (Profile profile : PROFILES) {
+                total += profile.weight;
+            }
+            int ticket = random.nextInt(total);
+            for (Profile profile : PROFILES) {
+                ticket -= profile.weight;
+                if (ticket < 0) return profile;
+            }
+            return METHODICAL;
+        }
+    }
+    
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final Profile[] PROFILES = Profile.values();
+    private static final Difficulty[] DIFFICULTIES = Difficulty.values();
+    private static final double THINK_SIGMA = 0.5;
+    
+    private final ScheduledThreadPoolExecutor workers;
+    private final BotDetector botDetector;
+    private final GameEventBus eventBus;
+    private final RollingStats rollingStats;
+    private final double thinkScale;
+    private final double replayProbability;
+    
+    private final LatencyHistogram[][] responseTimes;
+    private final LatencyHistogram[][] serviceTimes;
+    private final AtomicInteger activePlayers;
+    private final AtomicLong playersArrived;
+    private final AtomicLong playersStarted;
+    private final LongAccumulator lastStartedAt;
+    private final AtomicLong gamesPlayed;
+    
+    private LoadGenerator(int threads, double thinkScale, double replayProbability) {
+        this.workers = new ScheduledThreadPoolExecutor(threads);
+        this.botDetector = new BotDetector();
+        this.eventBus = new GameEventBus(1 << 16);
+        this.rollingStats = new RollingStats();
+        this.thinkScale = thinkScale;
+        this.replayProbability = replayProbability;
+        this.responseTimes = new LatencyHistogram[DIFFICULTIES.length][OPERATIONS.length];
+        this.serviceTimes = new LatencyHistogram[DIFFICULTIES.length][OPERATIONS.length];
+        this.activePlayers = new AtomicInteger();
+        this.playersArrived = new AtomicLong();
+        this.playersStarted = new AtomicLong();
+        this.lastStartedAt = new LongAccumulator(Math::max, Long.MIN_VALUE);
+        this.gamesPlayed = new AtomicLong();
+        
+        for (int d = 0; d < DIFFICULTIES.length; d++) {
+            for (int o = 0; o < OPERATIONS.length; o++) {
+                responseTimes[d][o] = new LatencyHistogram();
+                serviceTimes[d][o] = new LatencyHistogram();
+            }
+        }
+        
+        ScoreManager scoreManager = new ScoreManager();
+        eventBus.subscribe("rolling-stats", (event, endOfBatch) -> {
+            Difficulty difficulty = event.getLevel().getBaseDifficulty();
+            switch (event.getType()) {
+                case WON -> rollingStats.recordWin(difficulty, scoreManager.calculateScore(
+                    event.getLevel(), event.getAttempts(), event.getTimeTaken()));
+                case LOST -> rollingStats.recordLoss(difficulty);
+                default -> { }
+            }
+        });
+    }
+    
+    /**
+     * One synthetic player. Its operations run one at a time on the worker
+     * pool, each scheduled from the completion of the previous one.
+     */
+    private final class Player implements Runnable {
+        
+        private final SplittableRandom random;
+        private final Profile profile;
+        private final GameEngine engine;
+        private Difficulty difficulty;
+        private Operation next;
+        private long intendedStart;
+        private int low;
+        private int high;
+        private int attempts;
+        private boolean started;
+        
+        Player(SplittableRandom random, long arrival) {
+            this.random = random;
+            this.profile = Profile.pick(random);
+            this.engine = new GameEngine(botDetector, eventBus);
+            this.next = Operation.START_GAME;
+            this.intendedStart = arrival;
+        }
+        
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            if (!started) {
+                started = true;
+                playersStarted.incrementAndGet();
+                lastStartedAt.accumulate(start);
+            }
+            Difficulty timed = difficulty;
+            Operation operation = next;
+            boolean leaving = perform(operation);
+            long end = System.nanoTime();
+            
+            int d = (operation == Operation.START_GAME ? difficulty : timed).ordinal();
+            responseTimes[d][operation.ordinal()].record(end - intendedStart);
+            serviceTimes[d][operation.ordinal()].record(end - start);
+            
+            if (leaving) {
+                activePlayers.decrementAndGet();
+                return;
+            }
+            intendedStart = end + thinkNanos();
+            workers.schedule(this, intendedStart - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        
+        /**
+         * Perform one operation and choose the next
+         * 
+         * @return true if the player leaves
+         */
+        private boolean perform(Operation operation) {
+            switch (operation) {
+                case START_GAME -> {
+                    difficulty = DIFFICULTIES[random.nextInt(DIFFICULTIES.length)];
+                    engine.startNewGame(difficulty, difficulty.getMinRange() + random.nextInt(difficulty.getRangeSize()));
+                    low = difficulty.getMinRange();
+                    high = difficulty.getMaxRange();
+                    attempts = 0;
+                    next = Operation.GUESS;
+                }
+                case GUESS -> {
+                    int guess = profile.bisects ? (low + high) >>> 1 : low + random.nextInt(high - low + 1);
+                    GuessResult result = engine.makeGuess(guess);
+                    attempts++;
+                    if (result == GuessResult.TOO_LOW) {
+                        low = guess + 1;
+                    } else if (result == GuessResult.TOO_HIGH) {
+                        high = guess - 1;
+                    }
+                    if (result == GuessResult.CORRECT || attempts == difficulty.getMaxAttempts()) {
+                        gamesPlayed.incrementAndGet();
+                        next = Operation.STATS_READ;
+                    }
+                }
+                case STATS_READ -> {
+                    RollingStats.Snapshot recent = rollingStats.snapshot(RollingStats.Window.LAST_MINUTE, difficulty);
+                    RollingStats.Snapshot today = rollingStats.snapshot(RollingStats.Window.LAST_DAY);
+                    if (recent.getWinRate() < 0 || today.getGames() < 0) {
+                        throw new IllegalStateException("Corrupt rolling stats");
+                    }
+                    if (random.nextDouble() >= replayProbability) {
+                        return true;
+                    }
+                    next = Operation.START_GAME;
+                }
+            }
+            return false;
+        }
+        
+        private long thinkNanos() {
+            double factor = Math.exp(THINK_SIGMA * random.nextGaussian());
+            return (long) (profile.medianThinkMillis * 1_000_000L * factor * thinkScale);
+        }
+    }
+    
+    /**
+     * Schedule player arrivals as a Poisson process for the given duration,
+     * then wait for every player to leave
+     * 
+     * @param rate Players arriving per second
+     * @param seconds Arrival window
+     * @param seed Random seed for arrivals and player behaviour
+     */
+    private void run(double rate, int seconds, long seed) throws InterruptedException {
+        SplittableRandom random = new SplittableRandom(seed);
+        long startedAt = System.nanoTime();
+        long end = startedAt + TimeUnit.SECONDS.toNanos(seconds);
+        double meanGapNanos = 1e9 / rate;
+        long arrival = startedAt;
+        
+        while (true) {
+            arrival += (long) (-Math.log(1.0 - random.nextDouble()) * meanGapNanos);
+            if (arrival >= end) break;
+            
+            // Keep at most a second of arrivals queued ahead
+            long ahead = arrival - System.nanoTime() - TimeUnit.SECONDS.toNanos(1);
+            if (ahead > 0) {
+                TimeUnit.NANOSECONDS.sleep(ahead);
+            }
+            activePlayers.incrementAndGet();
+            playersArrived.incrementAndGet();
+            workers.schedule(new Player(random.split(), arrival), arrival - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        
+        while (activePlayers.get() > 0) {
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        
+        // Players that actually got going, over the time it took them to;
+        // an overloaded pool starts them late and the rate falls below target
+        long started = playersStarted.get();
+        double startWindow = Math.max(seconds, (lastStartedAt.get() - startedAt) / 1e9);
+        
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+        eventBus.close();
+        
+        System.out.printf("%,d of %,d players started, %,d games in %.1f s (target %.0f players/s, achieved %.1f)%n",
+                          started, playersArrived.get(), gamesPlayed.get(), elapsed / 1e9, rate,
+                          started / startWindow);
+        System.out.printf("Sessions flagged as scripted: %,d of %,d%n",
+                          botDetector.getFlaggedCount(), botDetector.getSessionCount());
+    }
+    
+    private void report() {
+        System.out.println("\nResponse time from intended start (corrected for coordinated omission),");
+        System.out.println("and service time from actual start, in microseconds");
+        
+        for (Difficulty difficulty : DIFFICULTIES) {
+            int d = difficulty.ordinal();
+            System.out.printf("%n%s%n", difficulty.name());
+            System.out.println("─────────────────────────────────────────────────────────────────────────────");
+            System.out.printf("  %-12s %10s %9s %9s %9s %10s %10s %10s%n",
+                              "Operation", "Count", "p50", "p90", "p99", "p99.9", "max", "svc p99");
+            
+            for (Operation operation : OPERATIONS) {
+                LatencyHistogram response = responseTimes[d][operation.ordinal()];
+                LatencyHistogram service = serviceTimes[d][operation.ordinal()];
+                System.out.printf("  %-12s %,10d %9.1f %9.1f %9.1f %10.1f %10.1f %10.1f%n",
+                                  operation.getLabel(), response.getCount(),
+                                  micros(response.percentile(50)), micros(response.percentile(90)),
+                                  micros(response.percentile(99)), micros(response.percentile(99.9)),
+                                  micros(response.getMax()), micros(service.percentile(99)));
+            }
+        }
+    }
+    
+    private static double micros(long nanos) {
+        return nanos / 1_000.0;
+    }
+    
+    /**
+     * Log-linear latency histogram: exact below 64 ns, then 32 buckets per
+     * power of two, so any value is reported within about 3%. Recording is
+     * a lock-free increment.
+     */
+    static final class LatencyHistogram {
+        
+        private static final int SUB_BUCKET_BITS = 5;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKETS = 64 * SUB_BUCKETS;
+        
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+        
+        void record(long nanos) {
+            long value = Math.max(0, nanos);
+            counts.incrementAndGet(index(value));
+            total.incrementAndGet();
+            max.accumulateAndGet(value, Math::max);
+        }
+        
+        static int index(long value) {
+            if (value < 2 * SUB_BUCKETS) return (int) value;
+            int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+            return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+        }
+        
+        /**
+         * Largest value that falls in a bucket
+         */
+        static long highestValue(int index) {
+            if (index < 2 * SUB_BUCKETS) return index;
+            int shift = (index >>> SUB_BUCKET_BITS) - 1;
+            long mantissa = index - ((long) shift << SUB_BUCKET_BITS);
+            return ((mantissa + 1) << shift) - 1;
+        }
+        
+        long percentile(double percentile) {
+            long count = total.get();
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) {
+                    return Math.min(highestValue(i), max.get());
+                }
+            }
+            return max.get();
+        }
+        
+        long getCount() {
+            return total.get();
+        }
+        
+        long getMax() {
+            return max.get();
+        }
+    }
+    
+    /**
+     * Main entry point
+     */
+    public static void main(String[] args) throws InterruptedException {
+        double rate = 200;
+        int seconds = 10;
+        int threads = Runtime.getRuntime().availableProcessors();
+        double thinkScale = 1.0;
+        double replay = 0.5;
+        long seed = 42;
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--rate" -> rate = Double.parseDouble(args[++i]);
+                case "--seconds" -> seconds = Integer.parseInt(args[++i]);
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--think-scale" -> thinkScale = Double.parseDouble(args[++i]);
+                case "--replay" -> replay = Double.parseDouble(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        
+        System.out.printf("Open-loop load: %.0f players/s for %d s, %d worker threads, think time x%.2f%n",
+                          rate, seconds, threads, thinkScale);
+        LoadGenerator generator = new LoadGenerator(threads, thinkScale, replay);
+        generator.run(rate, seconds, seed);
+        generator.report();
+    }
+}
@@ -1,5 +1,8 @@
 package com.michaelsemera.digitdash;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Scanner;
 
 /**
@@ -13,10 +16,15 @@ import java.util.Scanner;
  */
 public class DigitDashGame {
     
-    private final Scanner scanner;
-    private final GameEngine gameEngine;
+    private Scanner scanner;
+    private GameEngine gameEngine;
     private final ScoreManager scoreManager;
     private final PlayerStats playerStats;
+    private final AchievementTracker achievements;
+    private GameEventBus eventBus;
+    private Path historyPath; // null once history is off
+    private GameHistoryStore.Writer historyWriter;
+    private final boolean fastStart;
     private boolean isRunning;
     
     // ANSI colour codes for UK-styled console output
@@ -29,15 +37,44 @@ public class DigitDashGame {
     private static final String ANSI_CYAN = "\u001B[36m";
     private static final String ANSI_BOLD = "\u001B[1m";
     
+    public static final String DEFAULT_HISTORY_FILE = "digitdash-history.ddh";
+    
     /**
      * Constructor initializes game components
      */
     public DigitDashGame() {
-        this.scanner = new Scanner(System.in);
-        this.gameEngine = new GameEngine();
+        this(false);
+    }
+    
+    /**
+     * Constructor with optional fast startup, which skips the banner pause
+     * and defers building the input scanner until the first read and the
+     * game engine until the first game is chosen
+     * 
+     * @param fastStart Whether to start in fast-startup mode
+     */
+    public DigitDashGame(boolean fastStart) {
+        this(fastStart, Path.of(DEFAULT_HISTORY_FILE));
+    }
+    
+    /**
+     * Constructor choosing where finished games are stored
+     * 
+     * @param fastStart Whether to start in fast-startup mode
+     * @param historyPath History file to append games to, or null for none
+     */
+    public DigitDashGame(boolean fastStart, Path historyPath) {
+        this.fastStart = fastStart;
+        this.historyPath = historyPath;
+        this.scanner = fastStart ? null : new Scanner(System.in);
         this.scoreManager = new ScoreManager();
         this.playerStats = new PlayerStats();
+        this.achievements = new AchievementTracker();
         this.isRunning = true;
+        
+        if (!fastStart) {
+            getGameEngine();
+        }
     }
     
     /**
@@ -48,19 +85,28 @@ public class DigitDashGame {
         
         while (isRunning) {
             displayMainMenu();
-            int choice = getMenuChoice(1, 6);
+            int choice = getMenuChoice(1, 8);
             
             switch (choice) {
                 case 1 -> playGame(Difficulty.EASY);
                 case 2 -> playGame(Difficulty.MEDIUM);
                 case 3 -> playGame(Difficulty.HARD);
-                case 4 -> displayStatistics();
-                case 5 -> displayInstructions();
-                case 6 -> exitGame();
+                case 4 -> {
+                    awaitBookkeeping();
+                    playGame(playerStats.nextAdaptiveDifficulty());
+                }
+                case 5 -> playCodeGame();
+                case 6 -> displayStatistics();
+                case 7 -> displayInstructions();
+                case 8 -> exitGame();
             }
         }
         
-        scanner.close();
+        if (eventBus != null) {
+            eventBus.close();
+        }
+        closeHistory();
+        scanner().close();
     }
     
     /**
@@ -79,7 +125,9 @@ public class DigitDashGame {
         System.out.println("║                                                            ║");
         System.out.println("╚════════════════════════════════════════════════════════════╝");
         System.out.println(ANSI_RESET);
-        pause(1000);
+        if (!fastStart) {
+            pause(1000);
+        }
     }
     
     /**
@@ -91,25 +139,89 @@ public class DigitDashGame {
         System.out.println(ANSI_GREEN + "│  1. Play Easy     (1-50, 12 attempts)  │" + ANSI_RESET);
         System.out.println(ANSI_YELLOW + "│  2. Play Medium   (1-100, 10 attempts) │" + ANSI_RESET);
         System.out.println(ANSI_RED + "│  3. Play Hard     (1-500, 8 attempts)  │" + ANSI_RESET);
-        System.out.println(ANSI_BLUE + "│  4. View Statistics                    │" + ANSI_RESET);
-        System.out.println(ANSI_PURPLE + "│  5. Instructions                       │" + ANSI_RESET);
-        System.out.println(ANSI_CYAN + "│  6. Exit Game                          │" + ANSI_RESET);
+        System.out.println(ANSI_PURPLE + "│  4. Play Adaptive (tuned to you)       │" + ANSI_RESET);
+        System.out.println(ANSI_RED + "│  5. Play Code-Breaker (3-6 digits)     │" + ANSI_RESET);
+        System.out.println(ANSI_BLUE + "│  6. View Statistics                    │" + ANSI_RESET);
+        System.out.println(ANSI_PURPLE + "│  7. Instructions                       │" + ANSI_RESET);
+        System.out.println(ANSI_CYAN + "│  8. Exit Game                          │" + ANSI_RESET);
         System.out.println(ANSI_BOLD + "└─────────────────────────────────────────┘" + ANSI_RESET);
-        System.out.print("\nEnter your choice (1-6): ");
+        System.out.print("\nEnter your choice (1-8): ");
+    }
+    
+    /**
+     * Get the input scanner, building it on first use in fast-startup mode
+     */
+    private Scanner scanner() {
+        if (scanner == null) {
+            scanner = new Scanner(System.in);
+        }
+        return scanner;
+    }
+    
+    /**
+     * Get the game engine, building it on first use in fast-startup mode
+     */
+    private GameEngine getGameEngine() {
+        if (gameEngine == null) {
+            gameEngine = new GameEngine(new BotDetector(), getEventBus());
+        }
+        return gameEngine;
+    }
+    
+    /**
+     * Get the game event bus, starting the statistics and achievement
+     * handlers on first use
+     */
+    private GameEventBus getEventBus() {
+        if (eventBus == null) {
+            eventBus = new GameEventBus();
+            eventBus.subscribe("stats", this::recordGameEvent);
+            eventBus.subscribe("achievements", achievements);
+        }
+        return eventBus;
+    }
+    
+    /**
+     * Wait until the event handlers have caught up with every game played,
+     * before reading statistics
+     */
+    private void awaitBookkeeping() {
+        if (eventBus != null) {
+            eventBus.awaitIdle();
+        }
+    }
+    
+    /**
+     * Update statistics from the event stream; runs on the stats handler thread.
+     * Scripted sessions keep their result out of statistics and achievements.
+     */
+    private void recordGameEvent(GameEvent event, boolean endOfBatch) {
+        switch (event.getType()) {
+            case WON -> {
+                int score = scoreManager.calculateScore(event.getLevel(), event.getAttempts(),
+                                                        event.getTimeTaken());
+                if (event.isFlagged()) {
+                    playerStats.recordQuarantinedWin(score);
+                } else {
+                    playerStats.recordWin(event.getLevel(), event.getAttempts(), event.getTimeTaken(), score);
+                }
+            }
+            case LOST -> playerStats.recordLoss(event.getLevel());
+            default -> { }
+        }
     }
     
     /**
      * Main game play logic
      */
-    private void playGame(Difficulty difficulty) {
+    private void playGame(GameLevel difficulty) {
         clearScreen();
-        gameEngine.startNewGame(difficulty);
+        getGameEngine().startNewGame(difficulty);
         
         displayGameHeader(difficulty);
         
         boolean gameWon = false;
         int attempts = 0;
-        long startTime = System.currentTimeMillis();
         
         while (attempts < difficulty.getMaxAttempts() && !gameWon) {
             attempts++;
@@ -119,31 +231,169 @@ public class DigitDashGame {
             System.out.println(ANSI_BOLD + "═══════════════════════════════════════════════" + ANSI_RESET);
             
             int guess = getValidGuess(difficulty.getMinRange(), difficulty.getMaxRange());
-            GuessResult result = gameEngine.makeGuess(guess);
+            GuessResult result = getGameEngine().makeGuess(guess);
             
             displayGuessResult(result, guess);
             
             if (result == GuessResult.CORRECT) {
                 gameWon = true;
-                long timeTaken = (System.currentTimeMillis() - startTime) / 1000;
+                long timeTaken = getGameEngine().getTimeTaken();
                 handleVictory(difficulty, attempts, timeTaken);
             } else if (attempts == difficulty.getMaxAttempts()) {
-                handleDefeat();
+                handleDefeat(difficulty);
             } else {
                 displayRemainingAttempts(difficulty.getMaxAttempts() - attempts);
-                displayHint(result, guess, gameEngine.getTargetNumber(), difficulty);
+                displayHint(result, guess, getGameEngine().getTargetNumber(), difficulty);
             }
         }
         
+        appendToHistory(difficulty, gameWon, attempts);
+        displayAchievements();
+        
         System.out.print("\nPress Enter to continue...");
-        scanner.nextLine();
+        scanner().nextLine();
+    }
+    
+    /**
+     * Code-breaker game play logic. One hint per game is on offer, from a
+     * solver that tracks the codes still consistent with the feedback.
+     */
+    private void playCodeGame() {
+        System.out.print("\nCode length (3-6 digits): ");
+        CodeBreakerLevel level = new CodeBreakerLevel(getMenuChoice(3, 6));
+        int digits = level.getDigits();
+        
+        clearScreen();
+        getGameEngine().startCodeGame(level);
+        CodeSolver solver = new CodeSolver(digits);
+        
+        displayCodeHeader(level);
+        
+        boolean gameWon = false;
+        boolean hintUsed = false;
+        int attempts = 0;
+        
+        while (attempts < level.getMaxAttempts() && !gameWon) {
+            attempts++;
+            
+            System.out.println(ANSI_BOLD + "\n═══════════════════════════════════════════════" + ANSI_RESET);
+            System.out.printf("Attempt %d of %d\n", attempts, level.getMaxAttempts());
+            System.out.println(ANSI_BOLD + "═══════════════════════════════════════════════" + ANSI_RESET);
+            
+            int code;
+            while ((code = getValidCode(digits)) < 0) {
+                if (hintUsed) {
+                    System.out.println(ANSI_RED + "⚠ You've already had your hint for this game." + ANSI_RESET);
+                } else {
+                    hintUsed = true;
+                    displayCodeHint(solver);
+                }
+            }
+            
+            CodeFeedback feedback = getGameEngine().makeCodeGuess(code);
+            solver.prune(code, feedback);
+            
+            displayCodeFeedback(feedback, code);
+            
+            if (feedback.isCorrect()) {
+                gameWon = true;
+                long timeTaken = getGameEngine().getTimeTaken();
+                handleVictory(level, attempts, timeTaken);
+            } else if (attempts == level.getMaxAttempts()) {
+                handleDefeat(level);
+            } else {
+                displayRemainingAttempts(level.getMaxAttempts() - attempts);
+            }
+        }
+        
+        appendToHistory(level, gameWon, attempts);
+        displayAchievements();
+        
+        System.out.print("\nPress Enter to continue...");
+        scanner().nextLine();
+    }
+    
+    /**
+     * Display code-breaker header
+     */
+    private void displayCodeHeader(CodeBreakerLevel level) {
+        System.out.println(ANSI_RED + ANSI_BOLD);
+        System.out.println("╔════════════════════════════════════════════════════════════╗");
+        System.out.printf("║  Difficulty: %-45s ║%n", level.name());
+        System.out.printf("║  Code Length: %-44s ║%n", level.getDigits() + " digits (0-9, repeats allowed)");
+        System.out.printf("║  Maximum Attempts: %-39d ║%n", level.getMaxAttempts());
+        System.out.println("╚════════════════════════════════════════════════════════════╝");
+        System.out.println(ANSI_RESET);
+        System.out.println("I've set a secret code... Can you crack it? Type ? for a hint.\n");
+    }
+    
+    /**
+     * Get a valid code from the player
+     * 
+     * @return The code, or -1 if the player asked for a hint
+     */
+    private int getValidCode(int digits) {
+        while (true) {
+            System.out.printf("Enter your guess (%d digits): ", digits);
+            String input = scanner().nextLine().trim();
+            
+            if (input.equals("?")) {
+                return -1;
+            }
+            int code = CodeBreaker.parse(digits, input);
+            if (code >= 0) {
+                return code;
+            }
+            System.out.println(ANSI_RED + "⚠ Invalid! Enter exactly " + digits + " digits." + ANSI_RESET);
+        }
+    }
+    
+    /**
+     * Display feedback for a code-breaker guess
+     */
+    private void displayCodeFeedback(CodeFeedback feedback, int code) {
+        String guess = CodeBreaker.format(feedback.getDigits(), code);
+        System.out.println();
+        
+        if (feedback.isCorrect()) {
+            System.out.println(ANSI_GREEN + ANSI_BOLD);
+            System.out.println("╔═════════════════════════════════════════════╗");
+            System.out.println("║                                             ║");
+            System.out.println("║         🎉 CONGRATULATIONS! 🎉              ║");
+            System.out.println("║                                             ║");
+            System.out.println("║         You cracked the code!               ║");
+            System.out.println("║                                             ║");
+            System.out.println("╚═════════════════════════════════════════════╝");
+            System.out.println(ANSI_RESET);
+        } else {
+            System.out.println(ANSI_BLUE + "┌─────────────────────────────────┐");
+            System.out.printf("│  %-31s│%n", guess);
+            System.out.printf("│  🎯 In place:  %-17d│%n", feedback.getExact());
+            System.out.printf("│  🔀 Misplaced: %-17d│%n", feedback.getMisplaced());
+            System.out.println("└─────────────────────────────────┘" + ANSI_RESET);
+        }
+    }
+    
+    /**
+     * Display how many codes still fit and a suggested next guess
+     */
+    private void displayCodeHint(CodeSolver solver) {
+        int suggestion = solver.suggest();
+        System.out.println(ANSI_CYAN + "\n💡 Hint: " + ANSI_RESET);
+        if (suggestion < 0) {
+            System.out.println(ANSI_RED + "No code fits the feedback so far!" + ANSI_RESET);
+            return;
+        }
+        System.out.printf("%d possible code%s left. Try %s%n", solver.getCandidateCount(),
+                          solver.getCandidateCount() == 1 ? "" : "s",
+                          CodeBreaker.format(solver.getDigits(), suggestion));
     }
     
     /**
      * Display game header with difficulty info
      */
-    private void displayGameHeader(Difficulty difficulty) {
-        String colour = switch (difficulty) {
+    private void displayGameHeader(GameLevel difficulty) {
+        String colour = switch (difficulty.getBaseDifficulty()) {
             case EASY -> ANSI_GREEN;
             case MEDIUM -> ANSI_YELLOW;
             case HARD -> ANSI_RED;
@@ -167,9 +417,9 @@ public class DigitDashGame {
         while (true) {
             System.out.printf("Enter your guess (%d-%d): ", min, max);
             
-            if (scanner.hasNextInt()) {
-                guess = scanner.nextInt();
-                scanner.nextLine(); // Consume newline
+            if (scanner().hasNextInt()) {
+                guess = scanner().nextInt();
+                scanner().nextLine(); // Consume newline
                 
                 if (guess >= min && guess <= max) {
                     return guess;
@@ -179,7 +429,7 @@ public class DigitDashGame {
                 }
             } else {
                 System.out.println(ANSI_RED + "⚠ Invalid input! Please enter a number." + ANSI_RESET);
-                scanner.nextLine(); // Clear invalid input
+                scanner().nextLine(); // Clear invalid input
             }
         }
     }
@@ -217,7 +467,7 @@ public class DigitDashGame {
     /**
      * Display intelligent hint based on proximity
      */
-    private void displayHint(GuessResult result, int guess, int target, Difficulty difficulty) {
+    private void displayHint(GuessResult result, int guess, int target, GameLevel difficulty) {
         int difference = Math.abs(target - guess);
         int range = difficulty.getMaxRange() - difficulty.getMinRange();
         double percentOff = (double) difference / range * 100;
@@ -237,7 +487,7 @@ public class DigitDashGame {
         }
         
         // Additional strategic hint
-        if (difficulty == Difficulty.HARD && difference > 100) {
+        if (difficulty.getBaseDifficulty() == Difficulty.HARD && difference > 100) {
             int midpoint = (difficulty.getMinRange() + difficulty.getMaxRange()) / 2;
             if (target < midpoint) {
                 System.out.println("💭 Strategy: Focus on the lower half of the range.");
@@ -256,9 +506,10 @@ public class DigitDashGame {
     }
     
     /**
-     * Handle victory scenario
+     * Handle victory scenario; statistics and achievements are updated from
+     * the game's event stream
      */
-    private void handleVictory(Difficulty difficulty, int attempts, long timeTaken) {
+    private void handleVictory(GameLevel difficulty, int attempts, long timeTaken) {
         int score = scoreManager.calculateScore(difficulty, attempts, timeTaken);
         
         System.out.println(ANSI_GREEN + "\n┌─────────────── GAME RESULTS ───────────────┐");
@@ -267,64 +518,81 @@ public class DigitDashGame {
         System.out.printf("│  Score Earned: %-28d │%n", score);
         System.out.println("└────────────────────────────────────────────┘" + ANSI_RESET);
         
-        // Update statistics
-        playerStats.recordWin(difficulty, attempts, timeTaken, score);
-        
-        // Check for achievements
-        checkAndDisplayAchievements(difficulty, attempts);
+        if (getGameEngine().isSessionFlagged()) {
+            System.out.println(ANSI_RED + "\n⚠ This game looked automated; its score has been quarantined." + ANSI_RESET);
+        }
     }
     
     /**
      * Handle defeat scenario
      */
-    private void handleDefeat() {
+    private void handleDefeat(GameLevel difficulty) {
         System.out.println(ANSI_RED + "\n╔═══════════════════════════════════════════╗");
         System.out.println("║                                           ║");
         System.out.println("║         ❌ GAME OVER! ❌                  ║");
         System.out.println("║                                           ║");
         System.out.println("║   You've run out of attempts!             ║");
         System.out.println("║                                           ║");
-        System.out.printf("║   The number was: %-23d ║%n", gameEngine.getTargetNumber());
+        if (difficulty instanceof CodeBreakerLevel level) {
+            System.out.printf("║   The code was:   %-23s ║%n",
+                              CodeBreaker.format(level.getDigits(), getGameEngine().getTargetNumber()));
+        } else {
+            System.out.printf("║   The number was: %-23d ║%n", getGameEngine().getTargetNumber());
+        }
         System.out.println("║                                           ║");
         System.out.println("╚═══════════════════════════════════════════╝" + ANSI_RESET);
-        
-        playerStats.recordLoss();
     }
     
     /**
-     * Check and display any new achievements
+     * Append the game just finished to the history file, opening it on first
+     * use. Wins from sessions flagged as scripted are left out, as they are
+     * of statistics. A file that cannot be written turns history off for the
+     * rest of the session rather than ending it.
      */
-    private void checkAndDisplayAchievements(Difficulty difficulty, int attempts) {
-        boolean newAchievement = false;
-        
-        // First win on difficulty
-        if (playerStats.getWins(difficulty) == 1) {
-            System.out.println(ANSI_PURPLE + "\n🏆 Achievement Unlocked: First " + 
-                             difficulty.name() + " Victory!" + ANSI_RESET);
-            newAchievement = true;
-        }
+    private void appendToHistory(GameLevel level, boolean won, int attempts) {
+        GameEngine engine = getGameEngine();
+        if (historyPath == null || (won && engine.isSessionFlagged())) return;
         
-        // Perfect game (minimum attempts)
-        if (attempts <= 3) {
-            System.out.println(ANSI_PURPLE + "\n🏆 Achievement Unlocked: Perfect Game!" + ANSI_RESET);
-            newAchievement = true;
+        long timeTaken = engine.getTimeTaken();
+        GameRecord record = won
+            ? GameRecord.win(level, attempts, timeTaken,
+                             scoreManager.calculateScore(level, attempts, timeTaken), engine.getGuessHistory())
+            : GameRecord.loss(level, attempts, timeTaken, engine.getGuessHistory());
+        try {
+            if (historyWriter == null) {
+                historyWriter = GameHistoryStore.append(historyPath);
+            }
+            historyWriter.append(record);
+        } catch (IOException e) {
+            System.out.println(ANSI_RED + "\n⚠ Game history is off for this session: " + e.getMessage() + ANSI_RESET);
+            historyPath = null;
         }
-        
-        // Speed demon (under 30 seconds on medium/hard)
-        if (difficulty != Difficulty.EASY && playerStats.getTotalGames() > 0) {
-            System.out.println(ANSI_PURPLE + "\n🏆 Achievement Unlocked: Speed Demon!" + ANSI_RESET);
-            newAchievement = true;
+    }
+    
+    /**
+     * Write the last games and the footer of the history file
+     */
+    private void closeHistory() {
+        if (historyWriter == null) return;
+        try {
+            historyWriter.close();
+        } catch (IOException e) {
+            System.out.println(ANSI_RED + "⚠ Could not save game history: " + e.getMessage() + ANSI_RESET);
         }
+    }
+    
+    /**
+     * Display any achievements unlocked by the game just played
+     */
+    private void displayAchievements() {
+        awaitBookkeeping();
+        List<String> unlocked = achievements.pollUnlocked();
         
-        // Milestone wins
-        int totalWins = playerStats.getTotalWins();
-        if (totalWins == 10 || totalWins == 50 || totalWins == 100) {
-            System.out.println(ANSI_PURPLE + "\n🏆 Achievement Unlocked: " + 
-                             totalWins + " Total Wins!" + ANSI_RESET);
-            newAchievement = true;
+        for (String name : unlocked) {
+            System.out.println(ANSI_PURPLE + "\n🏆 Achievement Unlocked: " + name + ANSI_RESET);
         }
         
-        if (newAchievement) {
+        if (!unlocked.isEmpty()) {
             pause(2000);
         }
     }
@@ -333,6 +601,7 @@ public class DigitDashGame {
      * Display player statistics
      */
     private void displayStatistics() {
+        awaitBookkeeping();
         clearScreen();
         System.out.println(ANSI_BOLD + ANSI_CYAN);
         System.out.println("╔════════════════════════════════════════════════════════════╗");
@@ -366,9 +635,17 @@ public class DigitDashGame {
                             playerStats.getAverageAttempts(diff));
         }
         
+        for (String category : playerStats.getOtherCategories()) {
+            System.out.println(ANSI_BLUE + "\n" + category + ":" + ANSI_RESET);
+            System.out.printf("  Wins: %d | Best Attempts: %d | Avg Attempts: %.1f%n",
+                            playerStats.getWins(category),
+                            playerStats.getBestAttempts(category),
+                            playerStats.getAverageAttempts(category));
+        }
+        
         System.out.println("\n─────────────────────────────────────────────────────────────");
         System.out.print("\nPress Enter to return to menu...");
-        scanner.nextLine();
+        scanner().nextLine();
     }
     
     /**
@@ -402,6 +679,9 @@ public class DigitDashGame {
         System.out.println(ANSI_GREEN + "EASY:   " + ANSI_RESET + "Range 1-50,   12 attempts");
         System.out.println(ANSI_YELLOW + "MEDIUM: " + ANSI_RESET + "Range 1-100,  10 attempts");
         System.out.println(ANSI_RED + "HARD:   " + ANSI_RESET + "Range 1-500,  8 attempts");
+        System.out.println(ANSI_PURPLE + "ADAPTIVE: " + ANSI_RESET + "Range and attempts tuned to your recent games");
+        System.out.println(ANSI_RED + "CODE-BREAKER: " + ANSI_RESET + "Crack a 3-6 digit code; each guess tells you");
+        System.out.println("              how many digits are in place and how many are misplaced");
         
         System.out.println("\n🏆 Scoring System:");
         System.out.println("─────────────────────────────────────────────────────────────");
@@ -419,13 +699,14 @@ public class DigitDashGame {
         
         System.out.println("\n─────────────────────────────────────────────────────────────");
         System.out.print("\nPress Enter to return to menu...");
-        scanner.nextLine();
+        scanner().nextLine();
     }
     
     /**
      * Exit game with farewell message
      */
     private void exitGame() {
+        awaitBookkeeping();
         clearScreen();
         System.out.println(ANSI_CYAN + ANSI_BOLD);
         System.out.println("\n╔════════════════════════════════════════════════════════════╗");
@@ -450,9 +731,9 @@ public class DigitDashGame {
      */
     private int getMenuChoice(int min, int max) {
         while (true) {
-            if (scanner.hasNextInt()) {
-                int choice = scanner.nextInt();
-                scanner.nextLine(); // Consume newline
+            if (scanner().hasNextInt()) {
+                int choice = scanner().nextInt();
+                scanner().nextLine(); // Consume newline
                 
                 if (choice >= min && choice <= max) {
                     return choice;
@@ -462,7 +743,7 @@ public class DigitDashGame {
                 }
             } else {
                 System.out.print(ANSI_RED + "Invalid input! Please enter a number: " + ANSI_RESET);
-                scanner.nextLine(); // Clear invalid input
+                scanner().nextLine(); // Clear invalid input
             }
         }
     }
@@ -511,10 +792,23 @@ public class DigitDashGame {
     }
     
     /**
-     * Main entry point
+     * Main entry point; pass --fast-start (or -Ddigitdash.fastStart=true)
+     * for fast-startup mode, --history FILE to store finished games
+     * elsewhere than digitdash-history.ddh, or --no-history to store none
      */
     public static void main(String[] args) {
-        DigitDashGame game = new DigitDashGame();
+        boolean fastStart = Boolean.getBoolean("digitdash.fastStart");
+        Path historyPath = Path.of(DEFAULT_HISTORY_FILE);
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--fast-start" -> fastStart = true;
+                case "--history" -> historyPath = Path.of(args[++i]);
+                case "--no-history" -> historyPath = null;
+                default -> { }
+            }
+        }
+        
+        DigitDashGame game = new DigitDashGame(fastStart, historyPath);
         game.start();
     }
 }
\ No newline at end of file
@@ -0,0 +1,215 @@
+package com.michaelsemera.digitdash;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable record of one completed game, as persisted for analytics
+ * 
+ * @author Michael Semera
+ */
+public final class GameRecord {
+    
+    private final GameLevel level;
+    private final int attempts;
+    private final long timeTaken;
+    private final int score;
+    private final boolean won;
+    private final int[] guesses;
+    
+    /**
+     * Constructor for a game record
+     * 
+     * @param level Level played, fixed or calibrated
+     * @param attempts Attempts taken
+     * @param timeTaken Time taken in seconds
+     * @param score Score achieved (0 for a loss)
+     * @param won Whether the game was won
+     * @param guesses Guesses in the order they were made
+     */
+    public GameRecord(GameLevel level, int attempts, long timeTaken, int score,
+                      boolean won, int[] guesses) {
+        this(guesses.clone(), level, attempts, timeTaken, score, won);
+    }
+    
+    private GameRecord(int[] guesses, GameLevel level, int attempts, long timeTaken,
+                       int score, boolean won) {
+        this.level = level;
+        this.attempts = attempts;
+        this.timeTaken = timeTaken;
+        this.score = score;
+        this.won = won;
+        this.guesses = guesses;
+    }
+    
+    /**
+     * Create a record that takes ownership of its guess array, for decoders
+     * that already hold a fresh copy
+     * 
+     * @param level Level played
+     * @param attempts Attempts taken
+     * @param timeTaken Time taken in seconds
+     * @param score Score achieved (0 for a loss)
+     * @param won Whether the game was won
+     * @param guesses Guesses, not copied and not to be modified afterwards
+     * @return The game record
+     */
+    static GameRecord adopting(GameLevel level, int attempts, long timeTaken, int score,
+                               boolean won, int[] guesses) {
+        return new GameRecord(guesses, level, attempts, timeTaken, score, won);
+    }
+    
+    /**
+     * Create a record for a won game, matching the arguments of
+     * {@link PlayerStats#recordWin} and the result of {@link ScoreManager#calculateScore}
+     * 
+     * @param level Level played, fixed or calibrated
+     * @param attempts Attempts taken
+     * @param timeTaken Time taken in seconds
+     * @param score Score achieved
+     * @param guesses Guess history from the engine
+     * @return The game record
+     */
+    public static GameRecord win(GameLevel level, int attempts, long timeTaken,
+                                 int score, List<Integer> guesses) {
+        return new GameRecord(level, attempts, timeTaken, score, true, toArray(guesses));
+    }
+    
+    /**
+     * Create a record for a lost game
+     * 
+     * @param level Level played, fixed or calibrated
+     * @param attempts Attempts taken
+     * @param timeTaken Time taken in seconds
+     * @param guesses Guess history from the engine
+     * @return The game record
+     */
+    public static GameRecord loss(GameLevel level, int attempts, long timeTaken,
+                                  List<Integer> guesses) {
+        return new GameRecord(level, attempts, timeTaken, 0, false, toArray(guesses));
+    }
+    
+    private static int[] toArray(List<Integer> guesses) {
+        int[] values = new int[guesses.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = guesses.get(i);
+        }
+        return values;
+    }
+    
+    /**
+     * Replay this record into player statistics, as a historical game that
+     * leaves calibration and rolling aggregates alone
+     * 
+     * @param stats Statistics to update
+     */
+    public void applyTo(PlayerStats stats) {
+        stats.recordHistorical(level, won, attempts, timeTaken, score);
+    }
+    
+    /**
+     * Get the level played
+     * 
+     * @return Fixed difficulty, adaptive or code-breaker level
+     */
+    public GameLevel getLevel() {
+        return level;
+    }
+    
+    /**
+     * Get the fixed difficulty closest to the level played
+     * 
+     * @return The difficulty itself for a fixed-difficulty game
+     */
+    public Difficulty getDifficulty() {
+        return level.getBaseDifficulty();
+    }
+    
+    public int getAttempts() {
+        return attempts;
+    }
+    
+    public long getTimeTaken() {
+        return timeTaken;
+    }
+    
+    public int getScore() {
+        return score;
+    }
+    
+    public boolean isWon() {
+        return won;
+    }
+    
+    /**
+     * Get the guess sequence
+     * 
+     * @return Copy of the guesses made
+     */
+    public int[] getGuesses() {
+        return guesses.clone();
+    }
+    
+    /**
+     * Get the number of guesses without copying them
+     * 
+     * @return Guess count
+     */
+    public int getGuessCount() {
+        return guesses.length;
+    }
+    
+    /**
+     * Get a single guess without copying the sequence
+     * 
+     * @param index Guess index
+     * @return The guess
+     */
+    public int getGuess(int index) {
+        return guesses[index];
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof GameRecord other)) return false;
+        return sameLevel(level, other.level)
+            && attempts == other.attempts
+            && timeTaken == other.timeTaken
+            && score == other.score
+            && won == other.won
+            && Arrays.equals(guesses, other.guesses);
+    }
+    
+    /**
+     * Levels are equal when they are of one kind and play to the same rules;
+     * calibrated levels are value objects without equals of their own
+     */
+    private static boolean sameLevel(GameLevel a, GameLevel b) {
+        return a.getClass() == b.getClass()
+            && a.getStatsCategory().equals(b.getStatsCategory())
+            && a.getMinRange() == b.getMinRange()
+            && a.getMaxRange() == b.getMaxRange()
+            && a.getMaxAttempts() == b.getMaxAttempts();
+    }
+    
+    @Override
+    public int hashCode() {
+        int result = level.getStatsCategory().hashCode();
+        result = 31 * result + level.getMinRange();
+        result = 31 * result + level.getMaxRange();
+        result = 31 * result + level.getMaxAttempts();
+        result = 31 * result + attempts;
+        result = 31 * result + Long.hashCode(timeTaken);
+        result = 31 * result + score;
+        result = 31 * result + (won ? 1 : 0);
+        return 31 * result + Arrays.hashCode(guesses);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("GameRecord[%s, %s, attempts=%d, time=%ds, score=%d, guesses=%s]",
+                             level.getStatsCategory(), won ? "WIN" : "LOSS", attempts, timeTaken,
+                             score, Arrays.toString(guesses));
+    }
+}
@@ -0,0 +1,107 @@
+package com.michaelsemera.digitdash;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Consistent hash ring mapping players to stats nodes
+ * 
+ * Each node is placed on the ring at several virtual points so players
+ * spread evenly, and adding or removing a node only moves the players
+ * between it and its neighbours.
+ * 
+ * @author Michael Semera
+ */
+public class ConsistentHashRing {
+    
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+    
+    private final int virtualNodes;
+    private final NavigableMap<Long, String> ring;
+    private final Set<String> nodes;
+    
+    public ConsistentHashRing() {
+        this(DEFAULT_VIRTUAL_NODES);
+    }
+    
+    /**
+     * Constructor with a custom number of virtual points per node
+     * 
+     * @param virtualNodes Points placed on the ring for each node
+     */
+    public ConsistentHashRing(int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Virtual nodes must be positive: " + virtualNodes);
+        }
+        this.virtualNodes = virtualNodes;
+        this.ring = new TreeMap<>();
+        this.nodes = new TreeSet<>();
+    }
+    
+    /**
+     * Add a node to the ring
+     * 
+     * @param node Node id
+     */
+    public synchronized void addNode(String node) {
+        if (nodes.add(node)) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+    }
+    
+    /**
+     * Remove a node from the ring
+     * 
+     * @param node Node id
+     */
+    public synchronized void removeNode(String node) {
+        if (nodes.remove(node)) {
+            ring.values().removeIf(node::equals);
+        }
+    }
+    
+    /**
+     * Find the node owning a player
+     * 
+     * @param player Player name
+     * @return Owning node id
+     */
+    public synchronized String ownerOf(String player) {
+        if (ring.isEmpty()) {
+            throw new IllegalStateException("Hash ring has no nodes");
+        }
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(player));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+    
+    /**
+     * Get the nodes on the ring
+     * 
+     * @return Node ids
+     */
+    public synchronized Set<String> getNodes() {
+        return Collections.unmodifiableSet(new TreeSet<>(nodes));
+    }
+    
+    /**
+     * 64-bit FNV-1a followed by a SplitMix64 finaliser, so every node
+     * computes the same well-spread positions
+     */
+    static long hash(String key) {
+        long h = 0xCBF29CE484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xFF;
+            h *= 0x100000001B3L;
+        }
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+}
@@ -0,0 +1,276 @@
+package com.michaelsemera.digitdash;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Sliding-window aggregates of recent games for live dashboards
+ * 
+ * Each window is a ring of time buckets per difficulty. Recording a game
+ * touches one bucket per window, and a bucket that has fallen out of its
+ * window is only replaced when a writer next lands on its slot. Queries sum
+ * the live buckets of a ring and never look at individual games. Writers
+ * are lock-free: stale buckets are swapped out with a compare-and-set and
+ * counters are {@link LongAdder}s.
+ * 
+ * @author Michael Semera
+ */
+public class RollingStats {
+    
+    /**
+     * Supported windows and their bucket resolution
+     */
+    public enum Window {
+        LAST_MINUTE(1_000L, 60),
+        LAST_HOUR(60_000L, 60),
+        LAST_DAY(600_000L, 144);
+        
+        private final long bucketMillis;
+        private final int bucketCount;
+        
+        Window(long bucketMillis, int bucketCount) {
+            this.bucketMillis = bucketMillis;
+            this.bucketCount = bucketCount;
+        }
+        
+        public long getBucketMillis() {
+            return bucketMillis;
+        }
+        
+        public int getBucketCount() {
+            return bucketCount;
+        }
+        
+        /**
+         * Get the window length
+         * 
+         * @return Window length in seconds
+         */
+        public double getSeconds() {
+            return bucketMillis * bucketCount / 1000.0;
+        }
+    }
+    
+    private final LongSupplier clock;
+    private final Map<Difficulty, Ring[]> rings;
+    
+    public RollingStats() {
+        this(System::currentTimeMillis);
+    }
+    
+    /**
+     * Constructor with a custom clock
+     * 
+     * @param clock Source of the current time in milliseconds
+     */
+    public RollingStats(LongSupplier clock) {
+        this.clock = clock;
+        this.rings = new EnumMap<>(Difficulty.class);
+        
+        // Initialize one ring per window for each difficulty
+        for (Difficulty diff : Difficulty.values()) {
+            Ring[] byWindow = new Ring[Window.values().length];
+            for (Window window : Window.values()) {
+                byWindow[window.ordinal()] = new Ring(window);
+            }
+            rings.put(diff, byWindow);
+        }
+    }
+    
+    /**
+     * Record a win
+     * 
+     * @param difficulty Difficulty level
+     * @param score Score achieved
+     */
+    public void recordWin(Difficulty difficulty, int score) {
+        record(difficulty, true, score);
+    }
+    
+    /**
+     * Record a loss
+     * 
+     * @param difficulty Difficulty level
+     */
+    public void recordLoss(Difficulty difficulty) {
+        record(difficulty, false, 0);
+    }
+    
+    private void record(Difficulty difficulty, boolean won, int score) {
+        long now = clock.getAsLong();
+        for (Ring ring : rings.get(difficulty)) {
+            ring.record(now, won, score);
+        }
+    }
+    
+    /**
+     * Get aggregates for one difficulty over a window
+     * 
+     * @param window Time window
+     * @param difficulty Difficulty level
+     * @return Aggregates for the window
+     */
+    public Snapshot snapshot(Window window, Difficulty difficulty) {
+        Snapshot snapshot = new Snapshot(window);
+        rings.get(difficulty)[window.ordinal()].sumInto(clock.getAsLong(), snapshot);
+        return snapshot;
+    }
+    
+    /**
+     * Get aggregates across all difficulties over a window
+     * 
+     * @param window Time window
+     * @return Aggregates for the window
+     */
+    public Snapshot snapshot(Window window) {
+        Snapshot snapshot = new Snapshot(window);
+        long now = clock.getAsLong();
+        for (Ring[] byWindow : rings.values()) {
+            byWindow[window.ordinal()].sumInto(now, snapshot);
+        }
+        return snapshot;
+    }
+    
+    /**
+     * Point-in-time aggregates for a window
+     */
+    public static final class Snapshot {
+        
+        private final Window window;
+        private long games;
+        private long wins;
+        private long totalScore;
+        
+        private Snapshot(Window window) {
+            this.window = window;
+        }
+        
+        public Window getWindow() {
+            return window;
+        }
+        
+        public long getGames() {
+            return games;
+        }
+        
+        public long getWins() {
+            return wins;
+        }
+        
+        public long getLosses() {
+            return games - wins;
+        }
+        
+        public long getTotalScore() {
+            return totalScore;
+        }
+        
+        /**
+         * Get win rate percentage
+         * 
+         * @return Win rate (0-100)
+         */
+        public double getWinRate() {
+            if (games == 0) return 0.0;
+            return (double) wins / games * 100;
+        }
+        
+        /**
+         * Get average score per win, as in {@link PlayerStats#getAverageScore}
+         * 
+         * @return Average score
+         */
+        public double getAverageScore() {
+            if (wins == 0) return 0.0;
+            return (double) totalScore / wins;
+        }
+        
+        /**
+         * Get throughput over the window
+         * 
+         * @return Games per second
+         */
+        public double getGamesPerSecond() {
+            return games / window.getSeconds();
+        }
+    }
+    
+    /**
+     * Ring of time buckets for one window and difficulty
+     */
+    private static final class Ring {
+        
+        private final long bucketMillis;
+        private final int size;
+        private final AtomicReferenceArray<Bucket> slots;
+        
+        Ring(Window window) {
+            this.bucketMillis = window.getBucketMillis();
+            this.size = window.getBucketCount();
+            this.slots = new AtomicReferenceArray<>(size);
+        }
+        
+        void record(long now, boolean won, int score) {
+            long epoch = now / bucketMillis;
+            int index = (int) Math.floorMod(epoch, (long) size);
+            
+            while (true) {
+                Bucket bucket = slots.get(index);
+                if (bucket != null && bucket.epoch == epoch) {
+                    bucket.add(won, score);
+                    return;
+                }
+                if (bucket != null && bucket.epoch > epoch) {
+                    return; // Event is older than this window covers, so drop it
+                }
+                
+                // Slot is empty or expired, so start a fresh bucket in it
+                Bucket fresh = new Bucket(epoch);
+                if (slots.compareAndSet(index, bucket, fresh)) {
+                    fresh.add(won, score);
+                    return;
+                }
+            }
+        }
+        
+        void sumInto(long now, Snapshot snapshot) {
+            long epoch = now / bucketMillis;
+            long oldest = epoch - size;
+            
+            for (int i = 0; i < size; i++) {
+                Bucket bucket = slots.get(i);
+                if (bucket != null && bucket.epoch > oldest && bucket.epoch <= epoch) {
+                    snapshot.games += bucket.games.sum();
+                    snapshot.wins += bucket.wins.sum();
+                    snapshot.totalScore += bucket.totalScore.sum();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Counters for a single time bucket
+     */
+    private static final class Bucket {
+        
+        final long epoch;
+        final LongAdder games = new LongAdder();
+        final LongAdder wins = new LongAdder();
+        final LongAdder totalScore = new LongAdder();
+        
+        Bucket(long epoch) {
+            this.epoch = epoch;
+        }
+        
+        void add(boolean won, int score) {
+            games.increment();
+            if (won) {
+                wins.increment();
+                totalScore.add(score);
+            }
+        }
+    }
+}
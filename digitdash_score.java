@@ -13,15 +13,21 @@ public class ScoreManager {
     private static final int TIME_BONUS = 200;
     private static final int PERFECT_GAME_BONUS = 500;
     
+    private static final double MIN_MULTIPLIER = 0.5;
+    private static final double MAX_MULTIPLIER = 3.0;
+    
+    // Fixed difficulties ordered by hardness, used as anchors for dynamic levels
+    private static final Difficulty[] ANCHORS = sortedByHardness();
+    
     /**
      * Calculate score based on performance
      * 
-     * @param difficulty Game difficulty
+     * @param difficulty Game difficulty or calibrated level
      * @param attemptsTaken Number of attempts used
      * @param timeTaken Time taken in seconds
      * @return Calculated score
      */
-    public int calculateScore(Difficulty difficulty, int attemptsTaken, long timeTaken) {
+    public int calculateScore(GameLevel difficulty, int attemptsTaken, long timeTaken) {
         double score = BASE_SCORE;
         
         // Difficulty multiplier
@@ -49,6 +55,80 @@ public class ScoreManager {
         return (int) Math.round(score);
     }
     
+    /**
+     * Score multiplier for an arbitrary range and attempt budget, interpolated
+     * by hardness between the fixed difficulties so a calibrated level with
+     * the same parameters as a fixed one scores identically
+     * 
+     * @param rangeSize Size of the number range
+     * @param maxAttempts Maximum allowed attempts
+     * @return Score multiplier
+     */
+    public static double multiplierFor(int rangeSize, int maxAttempts) {
+        return multiplierForHardness(GameLevel.hardness(rangeSize, maxAttempts));
+    }
+    
+    /**
+     * Score multiplier for a code-breaker level. A guess there is answered
+     * with one of {@link CodeFeedback#outcomeCount} feedbacks rather than
+     * higher or lower, and a good code breaker gets about half of that
+     * capacity from each guess, so the bits needed per attempt are scaled
+     * down accordingly before interpolating.
+     * 
+     * @param digits Code length
+     * @param maxAttempts Maximum allowed attempts
+     * @return Score multiplier
+     */
+    public static double codeMultiplierFor(int digits, int maxAttempts) {
+        return multiplierForHardness(codeHardness(digits, maxAttempts));
+    }
+    
+    /**
+     * Hardness of a code-breaker level in bisection bits per attempt
+     * 
+     * @param digits Code length
+     * @param maxAttempts Maximum allowed attempts
+     * @return Required bits per attempt
+     */
+    public static double codeHardness(int digits, int maxAttempts) {
+        double bitsNeeded = digits * Math.log(10) / Math.log(2);
+        double bitsPerGuess = Math.log(CodeFeedback.outcomeCount(digits)) / Math.log(2) / 2;
+        return bitsNeeded / (maxAttempts * Math.max(1.0, bitsPerGuess));
+    }
+    
+    private static double multiplierForHardness(double hardness) {
+        // Pick the anchor segment containing the hardness, or the nearest end segment
+        int i = 0;
+        while (i < ANCHORS.length - 2 && hardness > ANCHORS[i + 1].getHardness()) {
+            i++;
+        }
+        Difficulty lower = ANCHORS[i];
+        Difficulty upper = ANCHORS[i + 1];
+        
+        double t = (hardness - lower.getHardness()) / (upper.getHardness() - lower.getHardness());
+        double multiplier = lower.getScoreMultiplier()
+                          + t * (upper.getScoreMultiplier() - lower.getScoreMultiplier());
+        return Math.max(MIN_MULTIPLIER, Math.min(MAX_MULTIPLIER, multiplier));
+    }
+    
+    /**
+     * Sort the fixed difficulties by hardness. A plain insertion sort keeps
+     * streams and lambdas off the startup path.
+     */
+    private static Difficulty[] sortedByHardness() {
+        Difficulty[] sorted = Difficulty.values();
+        for (int i = 1; i < sorted.length; i++) {
+            Difficulty current = sorted[i];
+            int j = i - 1;
+            while (j >= 0 && sorted[j].getHardness() > current.getHardness()) {
+                sorted[j + 1] = sorted[j];
+                j--;
+            }
+            sorted[j + 1] = current;
+        }
+        return sorted;
+    }
+    
     /**
      * Get grade based on score
      * 
@@ -0,0 +1,267 @@
+package com.michaelsemera.digitdash;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One node of the sharded statistics layer
+ * 
+ * A node records games for any player into its own G-counter entries, then
+ * ships deltas in batches to the node that owns each player on the
+ * {@link ConsistentHashRing}. The owner merges them into its
+ * {@link StatsCrdt} replica. A delta carries the sender's absolute counters
+ * rather than increments, so lost, repeated or reordered batches are
+ * harmless: the next flush of the same player repairs the owner.
+ * 
+ * When the ring changes, every node calls {@link #resendAll()} and flushes,
+ * so each player's new owner receives the full counters of every origin.
+ * Replicas of players a node no longer owns are dropped at that point, and
+ * until then they are left out of aggregates, so no player is counted on
+ * two nodes.
+ * 
+ * @author Michael Semera
+ */
+public class StatsNode {
+    
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    
+    private final String nodeId;
+    private final ConsistentHashRing ring;
+    private final Transport transport;
+    private final int batchSize;
+    
+    private final Map<String, StatsCrdt> local;
+    private final Set<String> dirty;
+    private final Map<String, StatsCrdt> owned;
+    
+    /**
+     * Constructor for a stats node
+     * 
+     * @param nodeId This node's id on the ring
+     * @param ring Ring shared by all nodes
+     * @param transport Delivery of delta batches to other nodes
+     * @param batchSize Dirty players that trigger an automatic flush
+     */
+    public StatsNode(String nodeId, ConsistentHashRing ring, Transport transport, int batchSize) {
+        this.nodeId = nodeId;
+        this.ring = ring;
+        this.transport = transport;
+        this.batchSize = batchSize;
+        this.local = new HashMap<>();
+        this.dirty = new LinkedHashSet<>();
+        this.owned = new HashMap<>();
+        ring.addNode(nodeId);
+    }
+    
+    /**
+     * Record a win for a player on this node
+     * 
+     * @param player Player name
+     * @param difficulty Difficulty level
+     * @param attempts Attempts taken
+     * @param timeTaken Time taken in seconds
+     * @param score Score achieved
+     */
+    public void recordWin(String player, GameLevel difficulty, int attempts, long timeTaken, int score) {
+        boolean full;
+        synchronized (this) {
+            local.computeIfAbsent(player, p -> new StatsCrdt())
+                 .recordWin(nodeId, difficulty, attempts, timeTaken, score);
+            dirty.add(player);
+            full = dirty.size() >= batchSize;
+        }
+        if (full) {
+            flush();
+        }
+    }
+    
+    /**
+     * Record a loss for a player on this node
+     * 
+     * @param player Player name
+     */
+    public void recordLoss(String player) {
+        boolean full;
+        synchronized (this) {
+            local.computeIfAbsent(player, p -> new StatsCrdt()).recordLoss(nodeId);
+            dirty.add(player);
+            full = dirty.size() >= batchSize;
+        }
+        if (full) {
+            flush();
+        }
+    }
+    
+    /**
+     * Send deltas for every player changed since the last flush, one batch
+     * per owning node. Batches are built under the lock and sent outside it.
+     */
+    public void flush() {
+        Map<String, List<String>> byOwner = new HashMap<>();
+        Map<String, ByteBuffer> batches = new HashMap<>();
+        
+        synchronized (this) {
+            for (String player : dirty) {
+                byOwner.computeIfAbsent(ring.ownerOf(player), o -> new ArrayList<>()).add(player);
+            }
+            for (Map.Entry<String, List<String>> entry : byOwner.entrySet()) {
+                batches.put(entry.getKey(), encode(entry.getValue()));
+            }
+            dirty.clear();
+        }
+        
+        for (Map.Entry<String, ByteBuffer> batch : batches.entrySet()) {
+            if (batch.getKey().equals(nodeId)) {
+                receive(batch.getValue());
+            } else {
+                transport.send(batch.getKey(), batch.getValue().asReadOnlyBuffer());
+            }
+        }
+    }
+    
+    /**
+     * Mark every local player dirty and drop replicas this node no longer
+     * owns, e.g. after the ring changes owners
+     */
+    public synchronized void resendAll() {
+        dirty.addAll(local.keySet());
+        owned.keySet().removeIf(player -> !owns(player));
+    }
+    
+    private boolean owns(String player) {
+        return ring.ownerOf(player).equals(nodeId);
+    }
+    
+    private ByteBuffer encode(List<String> players) {
+        int size = 4;
+        for (String player : players) {
+            size += StatsCrdt.deltaSize(player, nodeId);
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(players.size());
+        for (String player : players) {
+            StatsCrdt stats = local.get(player);
+            StatsCrdt.writeDelta(out, player, nodeId, stats.countersFor(nodeId), stats.bestAttempts());
+        }
+        return out.flip();
+    }
+    
+    /**
+     * Merge a batch of deltas from another node
+     * 
+     * @param batch Encoded batch
+     */
+    public synchronized void receive(ByteBuffer batch) {
+        ByteBuffer in = batch.duplicate();
+        int count = in.getInt();
+        long[] values = new long[StatsCrdt.SLOTS];
+        int[] best = new int[StatsCrdt.DIFFICULTIES];
+        
+        for (int i = 0; i < count; i++) {
+            String player = StatsCrdt.readString(in);
+            String origin = StatsCrdt.readString(in);
+            for (int s = 0; s < values.length; s++) {
+                values[s] = in.getLong();
+            }
+            for (int d = 0; d < best.length; d++) {
+                best[d] = in.getInt();
+            }
+            owned.computeIfAbsent(player, p -> new StatsCrdt()).mergeNode(origin, values, best);
+        }
+    }
+    
+    /**
+     * Get merged statistics for a player this node owns
+     * 
+     * @param player Player name
+     * @return Merged statistics, empty if nothing has been received or the
+     *         player is owned by another node
+     */
+    public synchronized StatsCrdt getPlayer(String player) {
+        StatsCrdt copy = new StatsCrdt();
+        StatsCrdt stats = owned.get(player);
+        if (stats != null && owns(player)) {
+            copy.merge(stats);
+        }
+        return copy;
+    }
+    
+    /**
+     * Add the totals of every player this node owns into an aggregate
+     * 
+     * @param aggregate Aggregate to add into
+     */
+    public synchronized void addOwnedTo(StatsCrdt aggregate) {
+        for (Map.Entry<String, StatsCrdt> entry : owned.entrySet()) {
+            // Replicas left over from a ring change belong to another node's total
+            if (owns(entry.getKey())) {
+                aggregate.add(entry.getValue());
+            }
+        }
+    }
+    
+    /**
+     * Sum the owned players of every node into cluster-wide totals
+     * 
+     * @param nodes All nodes of the cluster
+     * @return Aggregate statistics
+     */
+    public static StatsCrdt aggregate(Iterable<StatsNode> nodes) {
+        StatsCrdt aggregate = new StatsCrdt();
+        for (StatsNode node : nodes) {
+            node.addOwnedTo(aggregate);
+        }
+        return aggregate;
+    }
+    
+    public String getNodeId() {
+        return nodeId;
+    }
+    
+    /**
+     * Delivers delta batches between nodes
+     */
+    public interface Transport {
+        
+        /**
+         * Send a batch to a node
+         * 
+         * @param nodeId Destination node
+         * @param batch Encoded, read-only batch
+         */
+        void send(String nodeId, ByteBuffer batch);
+    }
+    
+    /**
+     * Transport connecting nodes within one JVM. Batches go through the same
+     * encoding as a network transport would use.
+     */
+    public static class LoopbackTransport implements Transport {
+        
+        private final Map<String, StatsNode> nodes = new ConcurrentHashMap<>();
+        
+        /**
+         * Make a node reachable
+         * 
+         * @param node Node to register
+         */
+        public void register(StatsNode node) {
+            nodes.put(node.getNodeId(), node);
+        }
+        
+        @Override
+        public void send(String nodeId, ByteBuffer batch) {
+            StatsNode node = nodes.get(nodeId);
+            if (node == null) {
+                throw new IllegalStateException("Unknown stats node: " + nodeId);
+            }
+            node.receive(batch);
+        }
+    }
+}
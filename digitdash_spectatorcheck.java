@@ -0,0 +1,249 @@
+package com.michaelsemera.digitdash;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fan-out check for {@link SpectatorBroadcast}
+ * 
+ * Plays scripted number and code-breaker games through a {@link GameEngine}
+ * publishing to a {@link GameEventBus}, with the broadcast subscribed to the
+ * bus and several spectators watching every game. Some spectators are slow,
+ * so frames pile up in mailboxes and are skipped. Every callback checks that
+ * its frame belongs to the game watched and still holds the state it was
+ * encoded with, before and after any pause, which catches a slab recycled
+ * while one of its frames is still in use. At the end every subscription
+ * must have received its game's final frame and ended, no game may be left
+ * live, and the slabs allocated must be fewer than the frames encoded would
+ * need without reuse. Exits with status 1 on any failure.
+ * 
+ * Usage: java -cp bin com.michaelsemera.digitdash.SpectatorCheck
+ *        [--games N] [--spectators N] [--slow-every N] [--seed N]
+ * 
+ * @author Michael Semera
+ */
+public class SpectatorCheck {
+    
+    private static final Difficulty[] DIFFICULTIES = Difficulty.values();
+    private static final long FINISH_TIMEOUT_MILLIS = 30_000;
+    
+    private final GameEventBus eventBus;
+    private final SpectatorBroadcast broadcast;
+    private final GameEngine engine;
+    private final SplittableRandom random;
+    private final int spectatorsPerGame;
+    private final int slowEvery;
+    private final List<SpectatorBroadcast.Subscription> subscriptions;
+    
+    private final AtomicLong framesReceived;
+    private final AtomicLong finalsReceived;
+    private final AtomicLong badFrames;
+    
+    /**
+     * Constructor for a check
+     * 
+     * @param spectatorsPerGame Spectators watching each game
+     * @param slowEvery One game in this many has a slow spectator, 0 for none
+     * @param seed Seed for targets and guesses
+     */
+    public SpectatorCheck(int spectatorsPerGame, int slowEvery, long seed) {
+        this.eventBus = new GameEventBus();
+        this.broadcast = new SpectatorBroadcast();
+        this.engine = new GameEngine(null, eventBus);
+        this.random = new SplittableRandom(seed);
+        this.spectatorsPerGame = spectatorsPerGame;
+        this.slowEvery = slowEvery;
+        this.subscriptions = new ArrayList<>();
+        this.framesReceived = new AtomicLong();
+        this.finalsReceived = new AtomicLong();
+        this.badFrames = new AtomicLong();
+        
+        eventBus.subscribe("spectators", broadcast);
+    }
+    
+    /**
+     * Start a game, wait for the broadcast to open its channel, then attach
+     * the spectators and play the game out
+     * 
+     * @param index Game number, used to pick the slow ones
+     */
+    void playGame(int index) {
+        boolean codeGame = random.nextInt(8) == 0;
+        GameLevel level;
+        if (codeGame) {
+            CodeBreakerLevel code = new CodeBreakerLevel(3 + random.nextInt(4));
+            engine.startCodeGame(code, random.nextInt(code.getMaxRange() + 1));
+            level = code;
+        } else {
+            level = DIFFICULTIES[random.nextInt(DIFFICULTIES.length)];
+            engine.startNewGame(level, level.getMinRange() + random.nextInt(level.getRangeSize()));
+        }
+        
+        long gameId = engine.getGameId();
+        eventBus.awaitIdle();
+        for (int i = 0; i < spectatorsPerGame; i++) {
+            boolean slow = i == 0 && slowEvery > 0 && index % slowEvery == 0;
+            subscriptions.add(broadcast.watch(gameId, frame -> check(gameId, frame, slow)));
+        }
+        
+        if (codeGame) {
+            playCode((CodeBreakerLevel) level);
+        } else {
+            playNumber(level);
+        }
+    }
+    
+    /**
+     * Bisect the remaining range, with a random guess now and then so some
+     * games are lost
+     */
+    private void playNumber(GameLevel level) {
+        boolean careless = random.nextInt(4) == 0;
+        for (int attempt = 0; attempt < level.getMaxAttempts(); attempt++) {
+            int[] range = engine.getRemainingRange();
+            int guess = careless
+                ? range[0] + random.nextInt(range[1] - range[0] + 1)
+                : (range[0] + range[1]) >>> 1;
+            if (engine.makeGuess(guess) == GuessResult.CORRECT) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Guess random codes until the game is won or lost
+     */
+    private void playCode(CodeBreakerLevel level) {
+        for (int attempt = 0; attempt < level.getMaxAttempts(); attempt++) {
+            if (engine.makeCodeGuess(random.nextInt(level.getMaxRange() + 1)).isCorrect()) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Spectator callback: the frame must be for the game watched and carry
+     * the attempt count its sequence implies, before and after a pause
+     */
+    private void check(long gameId, SpectatorBroadcast.Frame frame, boolean slow) {
+        framesReceived.incrementAndGet();
+        boolean good = isIntact(gameId, frame);
+        if (slow) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            good &= isIntact(gameId, frame);
+        }
+        if (!good && badFrames.incrementAndGet() <= 10) {
+            System.out.println("  OVERWRITTEN frame for game " + gameId + ": " + frame);
+        }
+        if (frame.isFinal()) {
+            finalsReceived.incrementAndGet();
+        }
+    }
+    
+    private static boolean isIntact(long gameId, SpectatorBroadcast.Frame frame) {
+        return frame.getGameId() == gameId
+            && frame.getAttempts() == frame.getSequence()
+            && frame.getLow() <= frame.getHigh();
+    }
+    
+    /**
+     * Wait until every subscription has ended
+     * 
+     * @return Subscriptions still active at the timeout
+     */
+    int awaitFinished() {
+        eventBus.awaitIdle();
+        long deadline = System.currentTimeMillis() + FINISH_TIMEOUT_MILLIS;
+        int active;
+        do {
+            active = 0;
+            for (SpectatorBroadcast.Subscription subscription : subscriptions) {
+                if (subscription.isActive()) {
+                    active++;
+                }
+            }
+            if (active > 0) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        } while (active > 0 && System.currentTimeMillis() < deadline);
+        return active;
+    }
+    
+    /**
+     * Main entry point
+     */
+    public static void main(String[] args) {
+        int games = 20_000;
+        int spectators = 2;
+        int slowEvery = 64;
+        long seed = 42;
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games" -> games = Integer.parseInt(args[++i]);
+                case "--spectators" -> spectators = Integer.parseInt(args[++i]);
+                case "--slow-every" -> slowEvery = Integer.parseInt(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (spectators <= 0) {
+            throw new IllegalArgumentException("At least 1 spectator per game is needed: " + spectators);
+        }
+        
+        SpectatorCheck harness = new SpectatorCheck(spectators, slowEvery, seed);
+        System.out.printf("Spectator broadcast (%d games, %d spectators each, seed %d)%n",
+                          games, spectators, seed);
+        System.out.println("─────────────────────────────────────────────────────────────");
+        
+        for (int i = 0; i < games; i++) {
+            harness.playGame(i);
+        }
+        int unfinished = harness.awaitFinished();
+        
+        SpectatorBroadcast broadcast = harness.broadcast;
+        long frames = broadcast.getFramesEncoded();
+        long slabsWithoutReuse = (frames + SpectatorBroadcast.SLAB_FRAMES - 1) / SpectatorBroadcast.SLAB_FRAMES;
+        long slabs = broadcast.getSlabsAllocated();
+        long expectedFinals = (long) games * spectators;
+        int live = broadcast.getLiveGames().length;
+        long skipped = 0;
+        for (SpectatorBroadcast.Subscription subscription : harness.subscriptions) {
+            skipped += subscription.getSkipped();
+        }
+        
+        System.out.printf("  Frames encoded:       %,12d%n", frames);
+        System.out.printf("  Frames delivered:     %,12d (%,d skipped)%n", harness.framesReceived.get(), skipped);
+        System.out.printf("  Overwritten frames:   %,12d%n", harness.badFrames.get());
+        System.out.printf("  Final frames:         %,12d of %,d%n", harness.finalsReceived.get(), expectedFinals);
+        System.out.printf("  Unfinished spectators:%,12d%n", unfinished);
+        System.out.printf("  Games left live:      %,12d%n", live);
+        System.out.printf("  Slabs allocated:      %,12d (%,d without reuse)%n", slabs, slabsWithoutReuse);
+        
+        boolean passed = harness.badFrames.get() == 0
+            && harness.finalsReceived.get() == expectedFinals
+            && unfinished == 0
+            && live == 0
+            && (slabsWithoutReuse <= 1 || slabs < slabsWithoutReuse);
+        
+        harness.eventBus.close();
+        broadcast.close();
+        
+        if (!passed) {
+            System.out.println("\nSpectator broadcast check FAILED");
+            System.exit(1);
+        }
+        System.out.println("\nAll spectators saw intact frames through to the end");
+    }
+}
@@ -0,0 +1,136 @@
+package com.michaelsemera.digitdash;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup benchmark: time from launching a fresh JVM to the main menu
+ * being rendered
+ * 
+ * Each run starts the game in a child JVM with --fast-start, waits for the
+ * menu title on its output, then chooses Exit. Extra JVM flags such as
+ * {@code -XX:SharedArchiveFile=digitdash.jsa} are passed through so runs
+ * with and without the AppCDS archive can be compared. A child that has not
+ * exited within the run timeout is killed and the benchmark fails.
+ * 
+ * Usage: java -cp bin com.michaelsemera.digitdash.StartupBenchmark
+ *        [--runs N] [--warmup N] [--target-ms N] [--jvm-arg FLAG]...
+ * 
+ * @author Michael Semera
+ */
+public class StartupBenchmark {
+    
+    private static final String MENU_MARKER = "MAIN MENU";
+    private static final String EXIT_CHOICE = "8\n";
+    private static final long RUN_TIMEOUT_SECONDS = 30;
+    
+    /**
+     * Main entry point
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int runs = 20;
+        int warmup = 3;
+        long targetMillis = 100;
+        List<String> jvmArgs = new ArrayList<>();
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--runs" -> runs = Integer.parseInt(args[++i]);
+                case "--warmup" -> warmup = Integer.parseInt(args[++i]);
+                case "--target-ms" -> targetMillis = Long.parseLong(args[++i]);
+                case "--jvm-arg" -> jvmArgs.add(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        
+        // Warm the OS page cache so the first measured run is not an outlier
+        for (int i = 0; i < warmup; i++) {
+            measure(jvmArgs);
+        }
+        
+        long[] samples = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            samples[i] = measure(jvmArgs);
+        }
+        Arrays.sort(samples);
+        
+        double median = percentile(samples, 50);
+        System.out.printf("JVM launch to first menu render (%d runs, flags %s)%n", runs, jvmArgs);
+        System.out.printf("  min %.1f ms | p50 %.1f ms | p90 %.1f ms | max %.1f ms%n",
+                          toMillis(samples[0]), median, percentile(samples, 90),
+                          toMillis(samples[samples.length - 1]));
+        System.out.printf("  target %d ms: %s%n", targetMillis, median <= targetMillis ? "MET" : "MISSED");
+        
+        if (median > targetMillis) {
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Launch one game JVM and time it until the menu appears
+     * 
+     * @return Elapsed nanoseconds
+     */
+    private static long measure(List<String> jvmArgs) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(DigitDashGame.class.getName());
+        command.add("--fast-start");
+        
+        ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true);
+        long start = System.nanoTime();
+        Process process = builder.start();
+        long elapsed = -1;
+        
+        // Killing the child closes its output, which ends the blocked read below
+        CompletableFuture<Void> watchdog = CompletableFuture.runAsync(process::destroyForcibly,
+            CompletableFuture.delayedExecutor(RUN_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        
+        try (BufferedReader out = new BufferedReader(
+                 new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                if (elapsed < 0 && line.contains(MENU_MARKER)) {
+                    elapsed = System.nanoTime() - start;
+                    try (OutputStream in = process.getOutputStream()) {
+                        in.write(EXIT_CHOICE.getBytes(StandardCharsets.UTF_8));
+                    }
+                }
+            }
+            process.waitFor();
+        } finally {
+            watchdog.cancel(false);
+            process.destroyForcibly();
+        }
+        
+        if (watchdog.isDone() && !watchdog.isCancelled()) {
+            throw new IllegalStateException("Game did not exit within " + RUN_TIMEOUT_SECONDS + " seconds" +
+                                            (elapsed < 0 ? " or render the menu" : ""));
+        }
+        if (elapsed < 0) {
+            throw new IllegalStateException("Game exited without rendering the menu");
+        }
+        return elapsed;
+    }
+    
+    private static double percentile(long[] sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return toMillis(sorted[Math.max(0, index)]);
+    }
+    
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -1,7 +1,10 @@
 package com.michaelsemera.digitdash;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Tracks player statistics across games
@@ -14,15 +17,34 @@ public class PlayerStats {
     private int totalWins;
     private int totalLosses;
     private int totalScore;
+    private int quarantinedGames;
+    private int quarantinedScore;
     
     private final Map<Difficulty, DifficultyStats> statsByDifficulty;
+    private final Map<String, DifficultyStats> statsByCategory; // Levels other than the fixed difficulties
+    private final RollingStats rollingStats;
+    private final DifficultyCalibrator calibrator;
     
     public PlayerStats() {
+        this(null);
+    }
+    
+    /**
+     * Constructor that also feeds recorded games into rolling aggregates
+     * 
+     * @param rollingStats Shared rolling aggregates, or null for none
+     */
+    public PlayerStats(RollingStats rollingStats) {
         this.totalGames = 0;
         this.totalWins = 0;
         this.totalLosses = 0;
         this.totalScore = 0;
+        this.quarantinedGames = 0;
+        this.quarantinedScore = 0;
         this.statsByDifficulty = new HashMap<>();
+        this.statsByCategory = new LinkedHashMap<>();
+        this.rollingStats = rollingStats;
+        this.calibrator = new DifficultyCalibrator();
         
         // Initialize stats for each difficulty
         for (Difficulty diff : Difficulty.values()) {
@@ -33,18 +55,23 @@ public class PlayerStats {
     /**
      * Record a win
      * 
-     * @param difficulty Difficulty level
+     * @param difficulty Difficulty level; other levels than the fixed
+     *                   difficulties are recorded under their own category
      * @param attempts Attempts taken
      * @param timeTaken Time taken in seconds
      * @param score Score achieved
      */
-    public void recordWin(Difficulty difficulty, int attempts, long timeTaken, int score) {
+    public void recordWin(GameLevel difficulty, int attempts, long timeTaken, int score) {
         totalGames++;
         totalWins++;
         totalScore += score;
         
-        DifficultyStats stats = statsByDifficulty.get(difficulty);
-        stats.recordWin(attempts, timeTaken);
+        statsFor(difficulty).recordWin(attempts, timeTaken);
+        calibrator.recordWin(difficulty, attempts, timeTaken);
+        
+        if (rollingStats != null) {
+            rollingStats.recordWin(difficulty.getBaseDifficulty(), score);
+        }
     }
     
     /**
@@ -55,6 +82,97 @@ public class PlayerStats {
         totalLosses++;
     }
     
+    /**
+     * Record a loss on a known difficulty
+     * 
+     * @param difficulty Difficulty level
+     */
+    public void recordLoss(GameLevel difficulty) {
+        recordLoss();
+        calibrator.recordLoss(difficulty);
+        
+        if (rollingStats != null) {
+            rollingStats.recordLoss(difficulty.getBaseDifficulty());
+        }
+    }
+    
+    /**
+     * Add totals for one difficulty imported from historical logs. Imported
+     * games count towards totals and bests, but not towards rolling
+     * aggregates or calibration, which describe recent play. Counts that
+     * would overflow are held at Integer.MAX_VALUE.
+     * 
+     * @param difficulty Difficulty level
+     * @param wins Games won
+     * @param losses Games lost
+     * @param score Total score of the wins
+     * @param attempts Total attempts over the wins
+     * @param timeTaken Total time of the wins in seconds
+     * @param bestAttempts Fewest attempts in a win, ignored if there were no wins
+     */
+    public void addImported(Difficulty difficulty, int wins, int losses, int score,
+                            int attempts, long timeTaken, int bestAttempts) {
+        totalGames = saturatedAdd(totalGames, saturatedAdd(wins, losses));
+        totalWins = saturatedAdd(totalWins, wins);
+        totalLosses = saturatedAdd(totalLosses, losses);
+        totalScore = saturatedAdd(totalScore, score);
+        
+        if (wins > 0) {
+            statsByDifficulty.get(difficulty).add(wins, attempts, timeTaken, bestAttempts);
+        }
+    }
+    
+    /**
+     * Record one game replayed from a history file. Like imported games it
+     * counts towards totals and bests, but not towards rolling aggregates or
+     * calibration, so replaying old games leaves recent play undisturbed.
+     * Counts that would overflow are held at Integer.MAX_VALUE.
+     * 
+     * @param difficulty Difficulty level; other levels than the fixed
+     *                   difficulties are recorded under their own category
+     * @param won Whether the game was won
+     * @param attempts Attempts taken
+     * @param timeTaken Time taken in seconds
+     * @param score Score achieved (0 for a loss)
+     */
+    public void recordHistorical(GameLevel difficulty, boolean won, int attempts, long timeTaken, int score) {
+        totalGames = saturatedAdd(totalGames, 1);
+        if (won) {
+            totalWins = saturatedAdd(totalWins, 1);
+            totalScore = saturatedAdd(totalScore, score);
+            statsFor(difficulty).add(1, attempts, timeTaken, attempts);
+        } else {
+            totalLosses = saturatedAdd(totalLosses, 1);
+        }
+    }
+    
+    /**
+     * Get the stats a level's wins are kept under
+     */
+    private DifficultyStats statsFor(GameLevel difficulty) {
+        return difficulty instanceof Difficulty fixed
+            ? statsByDifficulty.get(fixed)
+            : statsByCategory.computeIfAbsent(difficulty.getStatsCategory(), category -> new DifficultyStats());
+    }
+    
+    /**
+     * Add two non-negative counts, holding the sum at Integer.MAX_VALUE
+     */
+    private static int saturatedAdd(int a, int b) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) a + b);
+    }
+    
+    /**
+     * Record a win from a session flagged as scripted. The result is held
+     * apart and does not count towards totals, bests or rolling aggregates.
+     * 
+     * @param score Score that would have been awarded
+     */
+    public void recordQuarantinedWin(int score) {
+        quarantinedGames++;
+        quarantinedScore += score;
+    }
+    
     /**
      * Get total games played
      * 
@@ -101,6 +219,24 @@ public class PlayerStats {
         return totalScore;
     }
     
+    /**
+     * Get number of quarantined games
+     * 
+     * @return Quarantined games
+     */
+    public int getQuarantinedGames() {
+        return quarantinedGames;
+    }
+    
+    /**
+     * Get score withheld from quarantined games
+     * 
+     * @return Quarantined score
+     */
+    public int getQuarantinedScore() {
+        return quarantinedScore;
+    }
+    
     /**
      * Get average score per game
      * 
@@ -111,6 +247,24 @@ public class PlayerStats {
         return (double) totalScore / totalWins;
     }
     
+    /**
+     * Get the calibrated level for this player's next adaptive game
+     * 
+     * @return Adaptive difficulty
+     */
+    public AdaptiveDifficulty nextAdaptiveDifficulty() {
+        return calibrator.nextDifficulty();
+    }
+    
+    /**
+     * Get the player's skill calibrator
+     * 
+     * @return Difficulty calibrator
+     */
+    public DifficultyCalibrator getCalibrator() {
+        return calibrator;
+    }
+    
     /**
      * Get wins for specific difficulty
      * 
@@ -141,6 +295,48 @@ public class PlayerStats {
         return statsByDifficulty.get(difficulty).getAverageAttempts();
     }
     
+    /**
+     * Get the categories won in other than the fixed difficulties
+     * 
+     * @return Category names, in order of first win
+     */
+    public Set<String> getOtherCategories() {
+        return Collections.unmodifiableSet(statsByCategory.keySet());
+    }
+    
+    /**
+     * Get wins for a category from {@link #getOtherCategories()}
+     * 
+     * @param category Statistics category
+     * @return Number of wins
+     */
+    public int getWins(String category) {
+        DifficultyStats stats = statsByCategory.get(category);
+        return stats == null ? 0 : stats.getWins();
+    }
+    
+    /**
+     * Get best (minimum) attempts for a category
+     * 
+     * @param category Statistics category
+     * @return Best attempts, or 0 if no wins
+     */
+    public int getBestAttempts(String category) {
+        DifficultyStats stats = statsByCategory.get(category);
+        return stats == null ? 0 : stats.getBestAttempts();
+    }
+    
+    /**
+     * Get average attempts for a category
+     * 
+     * @param category Statistics category
+     * @return Average attempts
+     */
+    public double getAverageAttempts(String category) {
+        DifficultyStats stats = statsByCategory.get(category);
+        return stats == null ? 0.0 : stats.getAverageAttempts();
+    }
+    
     /**
      * Inner class for tracking stats per difficulty
      */
@@ -167,6 +363,16 @@ public class PlayerStats {
             }
         }
         
+        public void add(int wins, int attempts, long timeTaken, int best) {
+            this.wins = saturatedAdd(this.wins, wins);
+            totalAttempts = saturatedAdd(totalAttempts, attempts);
+            totalTime += timeTaken;
+            
+            if (best < bestAttempts) {
+                bestAttempts = best;
+            }
+        }
+        
         public int getWins() {
             return wins;
         }
@@ -0,0 +1,54 @@
+#!/bin/sh
+#
+# Build DigitDash.jar and an AppCDS archive for fast startup.
+#
+# The archive is dumped from a training run that starts in fast-startup
+# mode, renders the main menu and exits, so it covers exactly the classes
+# loaded before the first frame. CDS only archives classes loaded from
+# JARs, hence the packaging step. Requires JDK 17+.
+#
+#   scripts/build-cds.sh
+#   java -XX:SharedArchiveFile=digitdash.jsa -jar DigitDash.jar --fast-start
+#
+set -e
+
+ROOT_DIR=$(cd "$(dirname "$0")/.." && pwd)
+if [ -z "$SRC_DIR" ]; then
+    if [ -d "$ROOT_DIR/src/com/michaelsemera/digitdash" ]; then
+        SRC_DIR=$ROOT_DIR/src/com/michaelsemera/digitdash
+    else
+        SRC_DIR=$ROOT_DIR
+    fi
+fi
+BIN_DIR=${BIN_DIR:-bin}
+JAR=${JAR:-DigitDash.jar}
+ARCHIVE=${ARCHIVE:-digitdash.jsa}
+MAIN_CLASS=com.michaelsemera.digitdash.DigitDashGame
+
+# javac wants each public class in a file of the same name, which the
+# digitdash_*.java sources are not, so stage copies named after their class
+echo "Staging sources from $SRC_DIR..."
+STAGE_DIR=$(mktemp -d)
+trap 'rm -rf "$STAGE_DIR"' EXIT
+for file in "$SRC_DIR"/*.java; do
+    class=$(sed -n 's/^public \(final \|abstract \)*\(class\|enum\|interface\|record\) \([A-Za-z0-9_]*\).*/\3/p' "$file" | head -n 1)
+    cp "$file" "$STAGE_DIR/${class:-$(basename "$file" .java)}.java"
+done
+
+echo "Compiling to $BIN_DIR..."
+mkdir -p "$BIN_DIR"
+javac -encoding UTF-8 -d "$BIN_DIR" "$STAGE_DIR"/*.java
+
+echo "Packaging $JAR..."
+echo "Main-Class: $MAIN_CLASS" > "$BIN_DIR/manifest.txt"
+jar cfm "$JAR" "$BIN_DIR/manifest.txt" -C "$BIN_DIR" com
+
+echo "Training run, dumping $ARCHIVE..."
+rm -f "$ARCHIVE"
+printf '8\n' | java -XX:ArchiveClassesAtExit="$ARCHIVE" -cp "$JAR" \
+    "$MAIN_CLASS" --fast-start > /dev/null
+
+echo "Measuring startup without and with the archive..."
+java -cp "$JAR" com.michaelsemera.digitdash.StartupBenchmark --runs 10 || true
+java -cp "$JAR" com.michaelsemera.digitdash.StartupBenchmark --runs 10 \
+    --jvm-arg "-XX:SharedArchiveFile=$ARCHIVE" --jvm-arg "-XX:TieredStopAtLevel=1"